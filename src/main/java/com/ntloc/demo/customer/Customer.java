@@ -2,9 +2,11 @@ package com.ntloc.demo.customer;
 
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.SQLRestriction;
 
 @Table
 @Entity
+@SQLRestriction("deleted = false")
 public class Customer {
 
     @Id
@@ -13,6 +15,9 @@ public class Customer {
     private String name;
     private String email;
     private String address;
+    // Computed from email by the customer_email_hash trigger.
+    @Column(insertable = false, updatable = false)
+    private Long emailHash;
 
     public Customer() {
     }
@@ -0,0 +1,68 @@
+package com.ntloc.demo.customer;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ntloc.demo.tenant.TenantContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Last customers read from or written to the database by this instance,
+ * which {@link CustomerService} serves while the database is unavailable.
+ * Every tenant gets its own cache bounded by the size limit, so a busy
+ * tenant cannot evict another tenant's entries.
+ * <p>
+ * Entries are only as fresh as this instance's own traffic: writes made by
+ * other instances are not seen. The list of all customers is whatever the
+ * last successful list read returned, as long as it fits in the size limit,
+ * and any write through this instance drops it until the next list read.
+ */
+@Component
+public class CustomerCache {
+
+    private final long maxSize;
+    private final Map<String, TenantEntries> tenants = new ConcurrentHashMap<>();
+
+    public CustomerCache(@Value("${customer.cache.max-size:100000}") long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public void put(CustomerResponse customer) {
+        tenant().customers().put(customer.id(), customer);
+    }
+
+    public Optional<CustomerResponse> get(Long id) {
+        return Optional.ofNullable(tenant().customers().getIfPresent(id));
+    }
+
+    public void putAll(List<CustomerResponse> customers) {
+        tenant().allCustomers().set(customers.size() <= maxSize ? customers : null);
+    }
+
+    public Optional<List<CustomerResponse>> getAll() {
+        return Optional.ofNullable(tenant().allCustomers().get());
+    }
+
+    public void evict(Long id) {
+        tenant().customers().invalidate(id);
+    }
+
+    public void evictAll() {
+        tenant().allCustomers().set(null);
+    }
+
+    private TenantEntries tenant() {
+        return tenants.computeIfAbsent(TenantContext.getTenantId(), tenantId -> new TenantEntries(
+                Caffeine.newBuilder().maximumSize(maxSize).build(),
+                new AtomicReference<>()));
+    }
+
+    private record TenantEntries(Cache<Long, CustomerResponse> customers, AtomicReference<List<CustomerResponse>> allCustomers) {
+    }
+}
@@ -1,36 +1,69 @@
 package com.ntloc.demo.customer;
 
+import com.ntloc.demo.idempotency.IdempotencyService;
+import com.ntloc.demo.logging.RequestLogSampler;
+import io.micrometer.observation.annotation.Observed;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 
 @RestController
 @Slf4j
+@Observed(name = "customer.controller")
 @RequestMapping(path = "/api/v1/customers")
 public class CustomerController {
 
+    static final String STALE_WARNING = "110 - \"Response is Stale\"";
+
     private final CustomerService customerService;
+    private final IdempotencyService idempotencyService;
+    private final RequestLogSampler requestLogSampler;
 
-    public CustomerController(CustomerService customerService) {
+    public CustomerController(CustomerService customerService,
+                              IdempotencyService idempotencyService,
+                              RequestLogSampler requestLogSampler) {
         this.customerService = customerService;
+        this.idempotencyService = idempotencyService;
+        this.requestLogSampler = requestLogSampler;
     }
 
     @GetMapping
-    public List<Customer> getCustomers() {
-        log.info("Received get all customers request");
-        return customerService.getCustomers();
+    public ResponseEntity<List<CustomerResponse>> getCustomers() {
+        if (shouldLog("getCustomers")) {
+            log.info("Received get all customers request");
+        }
+        return toResponseEntity(customerService.getCustomers());
+    }
+
+    @GetMapping(path = "/stats")
+    public CustomerStatsResponse getCustomerStats() {
+        return customerService.getCustomerStats();
     }
 
     @GetMapping(path = "/{id}")
-    public Customer getCustomerById(@PathVariable("id") Long id) {
-        return customerService.getCustomerById(id);
+    public ResponseEntity<CustomerResponse> getCustomerById(@PathVariable("id") Long id) {
+        return toResponseEntity(customerService.getCustomerById(id));
     }
 
     @PostMapping
-    public void createCustomer(@RequestBody CreateCustomerRequest createCustomerRequest) {
-        log.info("Received create new customer {}", createCustomerRequest);
-        customerService.createCustomer(createCustomerRequest);
+    public void createCustomer(@RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey,
+                               @RequestBody CreateCustomerRequest createCustomerRequest) {
+        if (shouldLog("createCustomer")) {
+            log.info("Received create new customer with name: {}, email: {}, address: {}",
+                    createCustomerRequest.name(), createCustomerRequest.email(), createCustomerRequest.address());
+        }
+        if (idempotencyKey == null) {
+            customerService.createCustomer(createCustomerRequest);
+            return;
+        }
+        String fingerprint = IdempotencyService.fingerprint(createCustomerRequest.name(),
+                createCustomerRequest.email(),
+                createCustomerRequest.address());
+        idempotencyService.execute(idempotencyKey, fingerprint,
+                () -> customerService.createCustomer(createCustomerRequest));
     }
 
 
@@ -39,14 +72,31 @@ public class CustomerController {
                                @RequestParam(required = false) String name,
                                @RequestParam(required = false) String email,
                                @RequestParam(required = false) String address) {
-        log.info("Received the update request of id: {} with name: {}, email: {}, address: {}",
-                id, name, email, address);
+        if (shouldLog("updateCustomer")) {
+            log.info("Received the update request of id: {} with name: {}, email: {}, address: {}",
+                    id, name, email, address);
+        }
         customerService.updateCustomer(id, name, email, address);
     }
 
     @DeleteMapping(path = "/{id}")
     public void deleteCustomer(@PathVariable("id") Long id) {
-        log.info("Received the delete customer with id: {}", id);
+        if (shouldLog("deleteCustomer")) {
+            log.info("Received the delete customer with id: {}", id);
+        }
         customerService.deleteCustomer(id);
     }
+
+    private static <T> ResponseEntity<T> toResponseEntity(ReadResult<T> result) {
+        if (result.stale()) {
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.WARNING, STALE_WARNING)
+                    .body(result.value());
+        }
+        return ResponseEntity.ok(result.value());
+    }
+
+    private boolean shouldLog(String endpoint) {
+        return log.isInfoEnabled() && requestLogSampler.sample(endpoint);
+    }
 }
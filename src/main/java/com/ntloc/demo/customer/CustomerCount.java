@@ -0,0 +1,7 @@
+package com.ntloc.demo.customer;
+
+public record CustomerCount(
+        String key,
+        long count
+) {
+}
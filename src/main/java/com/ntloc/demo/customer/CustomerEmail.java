@@ -0,0 +1,42 @@
+package com.ntloc.demo.customer;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+
+/**
+ * Canonical form of customer emails and the fixed-width hash stored next to
+ * them in {@code customer.email_hash}.
+ * <p>
+ * The hash is the first eight bytes of the SHA-256 of the normalized email,
+ * read big-endian. The database computes the column itself, with the
+ * customer_email_hash trigger of V5__compute_customer_email_hash_in_database.sql,
+ * and lookups compute it here, so the two must stay in step.
+ */
+public final class CustomerEmail {
+
+    private CustomerEmail() {
+    }
+
+    public static String normalize(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public static long hash(String normalizedEmail) {
+        byte[] digest = sha256().digest(normalizedEmail.getBytes(StandardCharsets.UTF_8));
+        long hash = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            hash = (hash << 8) | (digest[i] & 0xFF);
+        }
+        return hash;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.ntloc.demo.customer;
+
+import com.ntloc.demo.tenant.TenancyProperties;
+import com.ntloc.demo.tenant.TenantContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+/**
+ * Bloom filters, one per tenant, over the email hashes of all customers, so
+ * that the common "email is free" case of {@link CustomerService} needs no
+ * database query.
+ * <p>
+ * {@link #mightContain} never answers {@code false} for an email that was
+ * stored before the last rebuild or added through this instance since.
+ * Emails written by other instances can be missed. The unique email index
+ * still rejects those, and {@link CustomerService} reports them like any
+ * other taken email. Until the first rebuild finishes, every email is
+ * reported as possibly taken.
+ * <p>
+ * Released emails are never removed, so the filter is rebuilt periodically
+ * to keep the false positive rate near its target.
+ */
+@Slf4j
+@Component
+public class CustomerEmailFilter {
+
+    private final CustomerStore customerStore;
+    private final TenancyProperties tenancyProperties;
+    private final TransactionOperations readOnlyTransaction;
+    private final int expectedInsertions;
+    private final double falsePositiveRate;
+    private final Map<String, Filters> filters = new ConcurrentHashMap<>();
+
+    public CustomerEmailFilter(CustomerStore customerStore,
+                               TenancyProperties tenancyProperties,
+                               ObjectProvider<PlatformTransactionManager> transactionManager,
+                               @Value("${customer.email-filter.expected-insertions:1000000}") int expectedInsertions,
+                               @Value("${customer.email-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.customerStore = customerStore;
+        this.tenancyProperties = tenancyProperties;
+        this.readOnlyTransaction = CustomerTransactions.readOnly(transactionManager.getIfAvailable());
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    public boolean mightContain(String normalizedEmail) {
+        Filters current = filters.get(TenantContext.getTenantId());
+        return current == null || current.published() == null
+                || current.published().mightContain(CustomerEmail.hash(normalizedEmail));
+    }
+
+    public void add(String normalizedEmail) {
+        Filters current = filters.get(TenantContext.getTenantId());
+        if (current != null) {
+            current.add(CustomerEmail.hash(normalizedEmail));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${customer.email-filter.rebuild-interval:PT6H}",
+            initialDelayString = "${customer.email-filter.rebuild-interval:PT6H}")
+    public synchronized void rebuild() {
+        tenancyProperties.getTenantIds().forEach(tenantId -> TenantContext.runAs(tenantId, () ->
+                readOnlyTransaction.executeWithoutResult(status -> rebuildTenant(tenantId))));
+    }
+
+    /**
+     * Only rebuilds write {@link #filters}, one at a time. An add reads the
+     * tenant's entry once, so it writes either to both the published and the
+     * rebuilding filter, or to the rebuilt filter after it is published.
+     */
+    private void rebuildTenant(String tenantId) {
+        Filters previous = filters.get(tenantId);
+        BloomFilter published = previous == null ? null : previous.published();
+        BloomFilter next = new BloomFilter(expectedInsertions, falsePositiveRate);
+        filters.put(tenantId, new Filters(published, next));
+        long count = 0;
+        try (Stream<Long> hashes = customerStore.streamEmailHashes()) {
+            for (Iterator<Long> iterator = hashes.iterator(); iterator.hasNext(); count++) {
+                next.add(iterator.next());
+            }
+        } catch (RuntimeException e) {
+            filters.put(tenantId, new Filters(published, null));
+            throw e;
+        }
+        filters.put(tenantId, new Filters(next, null));
+        log.info("Rebuilt customer email filter of tenant {} from {} emails", tenantId, count);
+    }
+
+    /**
+     * The filter {@link #mightContain} answers from, and the one being
+     * rebuilt, if any. Either can be {@code null}.
+     */
+    private record Filters(BloomFilter published, BloomFilter rebuilding) {
+
+        void add(long hash) {
+            if (published != null) {
+                published.add(hash);
+            }
+            if (rebuilding != null) {
+                rebuilding.add(hash);
+            }
+        }
+    }
+
+    static final class BloomFilter {
+
+        private final AtomicLongArray bits;
+        private final long bitCount;
+        private final int hashCount;
+
+        BloomFilter(int expectedInsertions, double falsePositiveRate) {
+            long optimalBits = (long) Math.ceil(-Math.max(expectedInsertions, 1) * Math.log(falsePositiveRate)
+                    / (Math.log(2) * Math.log(2)));
+            this.bits = new AtomicLongArray(Math.toIntExact(Math.max(1, (optimalBits + 63) / 64)));
+            this.bitCount = bits.length() * 64L;
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / Math.max(expectedInsertions, 1)
+                    * Math.log(2)));
+        }
+
+        void add(long hash) {
+            int low = (int) hash;
+            int high = (int) (hash >>> 32);
+            for (int i = 1; i <= hashCount; i++) {
+                long bit = Math.floorMod(low + (long) i * high, bitCount);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long current = bits.get(word);
+                while ((current & mask) == 0 && !bits.weakCompareAndSetVolatile(word, current, current | mask)) {
+                    current = bits.get(word);
+                }
+            }
+        }
+
+        boolean mightContain(long hash) {
+            int low = (int) hash;
+            int high = (int) (hash >>> 32);
+            for (int i = 1; i <= hashCount; i++) {
+                long bit = Math.floorMod(low + (long) i * high, bitCount);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
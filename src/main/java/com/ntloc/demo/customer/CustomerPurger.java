@@ -0,0 +1,80 @@
+package com.ntloc.demo.customer;
+
+import com.ntloc.demo.tenant.TenancyProperties;
+import com.ntloc.demo.tenant.TenantContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Hard-deletes soft-deleted customers in small, paced batches so the purge
+ * never holds long locks or competes with live traffic. Runs on the cron in
+ * {@code customer.purge.cron}, which defaults to an off-peak window, for
+ * every tenant in turn.
+ */
+@Slf4j
+@Component
+public class CustomerPurger {
+
+    private final CustomerStore customerStore;
+    private final TenancyProperties tenancyProperties;
+    private final Duration retention;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final Duration batchPause;
+
+    public CustomerPurger(CustomerStore customerStore,
+                          TenancyProperties tenancyProperties,
+                          @Value("${customer.purge.retention:P1D}") Duration retention,
+                          @Value("${customer.purge.batch-size:500}") int batchSize,
+                          @Value("${customer.purge.max-batches-per-run:200}") int maxBatchesPerRun,
+                          @Value("${customer.purge.batch-pause:PT0.2S}") Duration batchPause) {
+        this.customerStore = customerStore;
+        this.tenancyProperties = tenancyProperties;
+        this.retention = retention;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.batchPause = batchPause;
+    }
+
+    @Scheduled(cron = "${customer.purge.cron:0 */10 1-5 * * *}")
+    public void scheduledPurge() {
+        tenancyProperties.getTenantIds().forEach(tenantId -> TenantContext.runAs(tenantId, this::purge));
+    }
+
+    public int purge() {
+        Instant deletedBefore = Instant.now().minus(retention);
+        int purged = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            int deleted = customerStore.purgeDeleted(deletedBefore, batchSize);
+            purged += deleted;
+            if (deleted < batchSize) {
+                break;
+            }
+            if (!pause()) {
+                break;
+            }
+        }
+        if (purged > 0) {
+            log.info("Purged {} deleted customers of tenant {}", purged, TenantContext.getTenantId());
+        }
+        return purged;
+    }
+
+    private boolean pause() {
+        if (batchPause.isZero()) {
+            return true;
+        }
+        try {
+            Thread.sleep(batchPause.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
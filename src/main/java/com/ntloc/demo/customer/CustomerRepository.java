@@ -1,14 +1,83 @@
 package com.ntloc.demo.customer;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface CustomerRepository extends JpaRepository<Customer, Long> {
+public interface CustomerRepository extends JpaRepository<Customer, Long>, CustomerStore {
 
-    @Query("SELECT c FROM Customer c WHERE c.email = ?1")
-    Optional<Customer> findByEmail(String email);
+    default Optional<Customer> findByEmail(String email) {
+        return email == null ? Optional.empty() : findByEmailHashAndEmail(CustomerEmail.hash(email), email);
+    }
+
+    default boolean existsByEmail(String email) {
+        return email != null && existsByEmailHashAndEmail(CustomerEmail.hash(email), email);
+    }
+
+    Optional<Customer> findByEmailHashAndEmail(long emailHash, String email);
+
+    boolean existsByEmailHashAndEmail(long emailHash, String email);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "10000"))
+    @Query("SELECT c.emailHash FROM Customer c WHERE c.emailHash IS NOT NULL")
+    Stream<Long> streamEmailHashes();
+
+    @Query("SELECT new com.ntloc.demo.customer.CustomerResponse(c.id, c.name, c.email, c.address) FROM Customer c")
+    List<CustomerResponse> findAllResponses();
+
+    @Query("SELECT new com.ntloc.demo.customer.CustomerResponse(c.id, c.name, c.email, c.address) " +
+            "FROM Customer c WHERE c.id = ?1")
+    Optional<CustomerResponse> findResponseById(Long id);
+
+    @Query("SELECT new com.ntloc.demo.customer.CustomerCount(" +
+            "CASE WHEN LOCATE('@', c.email) > 0 THEN LOWER(SUBSTRING(c.email, LOCATE('@', c.email) + 1)) END, " +
+            "COUNT(c)) FROM Customer c " +
+            "GROUP BY CASE WHEN LOCATE('@', c.email) > 0 THEN LOWER(SUBSTRING(c.email, LOCATE('@', c.email) + 1)) END")
+    List<CustomerCount> countByEmailDomain();
+
+    @Query("SELECT new com.ntloc.demo.customer.CustomerCount(TRIM(c.address), COUNT(c)) " +
+            "FROM Customer c GROUP BY TRIM(c.address)")
+    List<CustomerCount> countByAddress();
+
+    default Optional<DeletedCustomer> softDeleteById(Long id) {
+        return markDeleted(id).map(row -> new DeletedCustomer(row.getEmail(), row.getAddress()));
+    }
+
+    /**
+     * Soft-deletes and returns the deleted row in one round trip. Not
+     * {@code @Modifying}: the statement returns a result set, so it runs as a
+     * query.
+     */
+    @Transactional
+    @Query(value = """
+            UPDATE customer SET deleted = true, deleted_at = now() WHERE id = ?1 AND NOT deleted
+            RETURNING email, address
+            """, nativeQuery = true)
+    Optional<DeletedRow> markDeleted(Long id);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+            DELETE FROM customer WHERE id IN (
+                SELECT id FROM customer WHERE deleted AND deleted_at < ?1 ORDER BY deleted_at LIMIT ?2)
+            """, nativeQuery = true)
+    int purgeDeleted(Instant deletedBefore, int limit);
+
+    interface DeletedRow {
+
+        String getEmail();
+
+        String getAddress();
+    }
 }
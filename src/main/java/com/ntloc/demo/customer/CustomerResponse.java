@@ -0,0 +1,9 @@
+package com.ntloc.demo.customer;
+
+public record CustomerResponse(
+        Long id,
+        String name,
+        String email,
+        String address
+) {
+}
@@ -2,71 +2,245 @@ package com.ntloc.demo.customer;
 
 import com.ntloc.demo.exception.CustomerEmailUnavailableException;
 import com.ntloc.demo.exception.CustomerNotFoundException;
+import com.ntloc.demo.exception.DatabaseFailurePredicate;
+import com.ntloc.demo.exception.EmailConflictPredicate;
+import com.ntloc.demo.tenant.TenantContext;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.observation.annotation.Observed;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionOperations;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Objects;
-import java.util.Optional;
-
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Every call runs through a circuit breaker and a read or write bulkhead of
+ * the current tenant, created on first use from the {@code customerDatabase},
+ * {@code customerRead} and {@code customerWrite} configs. One tenant's failing
+ * schema or slow writes therefore never open the circuit or take permits of
+ * another. Both run outside the transaction, so a rejected call never waits
+ * for a connection. The transaction bounds every statement of the call by
+ * {@code customer.database.request-timeout}; background jobs run without it.
+ */
 @Service
+@Observed(name = "customer.service")
 public class CustomerService {
 
-    private final CustomerRepository customerRepository;
-
-    public CustomerService(CustomerRepository customerRepository) {
-        this.customerRepository = customerRepository;
+    static final String CUSTOMER_DATABASE = "customerDatabase";
+    static final String CUSTOMER_READ = "customerRead";
+    static final String CUSTOMER_WRITE = "customerWrite";
+
+    private final CustomerStore customerStore;
+    private final CustomerStats customerStats;
+    private final CustomerEmailFilter customerEmailFilter;
+    private final CustomerCache customerCache;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final BulkheadRegistry bulkheadRegistry;
+    private final TransactionOperations readTransaction;
+    private final TransactionOperations writeTransaction;
+    private final EmailConflictPredicate emailConflict = new EmailConflictPredicate();
+    private final DatabaseFailurePredicate databaseFailure = new DatabaseFailurePredicate();
+
+    public CustomerService(CustomerStore customerStore,
+                           CustomerStats customerStats,
+                           CustomerEmailFilter customerEmailFilter,
+                           CustomerCache customerCache,
+                           CircuitBreakerRegistry circuitBreakerRegistry,
+                           BulkheadRegistry bulkheadRegistry,
+                           ObjectProvider<PlatformTransactionManager> transactionManager,
+                           @Value("${customer.database.request-timeout:5s}") Duration requestTimeout) {
+        this.customerStore = customerStore;
+        this.customerStats = customerStats;
+        this.customerEmailFilter = customerEmailFilter;
+        this.customerCache = customerCache;
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.bulkheadRegistry = bulkheadRegistry;
+        this.readTransaction = CustomerTransactions.request(transactionManager.getIfAvailable(), true, requestTimeout);
+        this.writeTransaction = CustomerTransactions.request(transactionManager.getIfAvailable(), false, requestTimeout);
     }
 
-    public List<Customer> getCustomers() {
-        return customerRepository.findAll();
+    public ReadResult<List<CustomerResponse>> getCustomers() {
+        return read(() -> {
+            List<CustomerResponse> customers = customerStore.findAllResponses();
+            customerCache.putAll(customers);
+            return ReadResult.fresh(customers);
+        }, this::getCachedCustomers);
     }
 
-    public Customer getCustomerById(Long id) {
-        return customerRepository.findById(id).orElseThrow(() ->
-                new CustomerNotFoundException("Customer with id " + id + " doesn't found"));
+    public ReadResult<CustomerResponse> getCustomerById(Long id) {
+        return read(() -> {
+            CustomerResponse customer = customerStore.findResponseById(id).orElseThrow(() ->
+                    new CustomerNotFoundException("Customer with id " + id + " doesn't found"));
+            customerCache.put(customer);
+            return ReadResult.fresh(customer);
+        }, cause -> getCachedCustomerById(id, cause));
     }
 
     public void createCustomer(CreateCustomerRequest createCustomerRequest) {
-        Optional<Customer> customerByEmail = customerRepository.findByEmail(createCustomerRequest.email());
-        if (customerByEmail.isPresent()) {
-            throw new CustomerEmailUnavailableException("The email " + createCustomerRequest.email() + " unavailable.");
-        }
-        Customer customer = Customer.create(createCustomerRequest.name(),
-                createCustomerRequest.email(),
-                createCustomerRequest.address());
-        customerRepository.save(customer);
+        write(() -> create(createCustomerRequest));
     }
 
-
     public void updateCustomer(Long id, String name, String email, String address) {
-        Customer customer = customerRepository.findById(id).orElseThrow(() ->
-                new CustomerNotFoundException("Customer with id " + id + " doesn't found"));
-        if (Objects.nonNull(name)) {
+        write(() -> update(id, name, email, address));
+    }
 
-            customer.setName(name);
-        }
-        if (Objects.nonNull(email)) {
-            Optional<Customer> customerByEmail = customerRepository.findByEmail(email);
-            if (customerByEmail.isPresent()) {
-                throw new CustomerEmailUnavailableException("The email \"" + email + "\" unavailable to update");
+    public void deleteCustomer(Long id) {
+        write(() -> delete(id));
+    }
+
+    public CustomerStatsResponse getCustomerStats() {
+        return customerStats.getStats();
+    }
+
+    private void create(CreateCustomerRequest createCustomerRequest) {
+        String email = CustomerEmail.normalize(createCustomerRequest.email());
+        Customer customer = Customer.create(createCustomerRequest.name(),
+                email,
+                createCustomerRequest.address());
+        try {
+            writeTransaction.executeWithoutResult(status -> {
+                if (isEmailTaken(email)) {
+                    throw new CustomerEmailUnavailableException("The email " + createCustomerRequest.email() + " unavailable.");
+                }
+                customerStore.save(customer);
+            });
+        } catch (DataIntegrityViolationException e) {
+            if (!emailConflict.test(e)) {
+                throw e;
             }
-            customer.setEmail(email);
+            throw new CustomerEmailUnavailableException("The email " + createCustomerRequest.email() + " unavailable.");
         }
-        if (Objects.nonNull(address)) {
+        recordEmail(email);
+        customerCache.evictAll();
+        customerStats.recordCreated(customer.getEmail(), customer.getAddress());
+    }
 
-            customer.setAddress(address);
+    private void update(Long id, String name, String email, String address) {
+        UpdatedCustomer updated;
+        try {
+            // Caught here, around the commit, because a changed row is only
+            // written when the transaction flushes.
+            updated = writeTransaction.execute(status -> {
+                Customer customer = customerStore.findById(id).orElseThrow(() ->
+                        new CustomerNotFoundException("Customer with id " + id + " doesn't found"));
+                UpdatedCustomer before = new UpdatedCustomer(customer, customer.getEmail(), customer.getAddress());
+                if (Objects.nonNull(name)) {
+
+                    customer.setName(name);
+                }
+                if (Objects.nonNull(email) && !CustomerEmail.normalize(email).equals(before.oldEmail())) {
+                    if (isEmailTaken(CustomerEmail.normalize(email))) {
+                        throw new CustomerEmailUnavailableException("The email \"" + email + "\" unavailable to update");
+                    }
+                    customer.setEmail(CustomerEmail.normalize(email));
+                }
+                if (Objects.nonNull(address)) {
+
+                    customer.setAddress(address);
+                }
+                customerStore.save(customer);
+                return before;
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Only a changed email can violate the email index.
+            if (!emailConflict.test(e)) {
+                throw e;
+            }
+            throw new CustomerEmailUnavailableException("The email \"" + email + "\" unavailable to update");
         }
-
-        customerRepository.save(customer);
+        Customer customer = updated.customer();
+        recordEmail(customer.getEmail());
+        customerCache.put(new CustomerResponse(customer.getId(), customer.getName(),
+                customer.getEmail(), customer.getAddress()));
+        customerCache.evictAll();
+        customerStats.recordUpdated(updated.oldEmail(), updated.oldAddress(), customer.getEmail(), customer.getAddress());
     }
 
-    public void deleteCustomer(Long id) {
-        boolean isExist = customerRepository.existsById(id);
-        if (!isExist) {
+    private void delete(Long id) {
+        DeletedCustomer deleted = writeTransaction.execute(status -> customerStore.softDeleteById(id).orElse(null));
+        customerCache.evict(id);
+        customerCache.evictAll();
+        if (deleted == null) {
             throw new CustomerNotFoundException("Customer with id " + id + " doesn't exist.");
         }
-        customerRepository.deleteById(id);
+        customerStats.recordDeleted(deleted.email(), deleted.address());
     }
 
+    /**
+     * Runs a read in a request transaction inside the tenant's circuit
+     * breaker and read bulkhead. Only a database failure or a rejection goes
+     * to {@code fallback}; anything else, a bug included, is rethrown rather
+     * than hidden behind stale data.
+     */
+    private <T> T read(Supplier<T> query, Function<RuntimeException, T> fallback) {
+        Supplier<T> transactional = () -> readTransaction.execute(status -> query.get());
+        try {
+            return CircuitBreaker.decorateSupplier(circuitBreaker(),
+                    Bulkhead.decorateSupplier(bulkhead(CUSTOMER_READ), transactional)).get();
+        } catch (RuntimeException e) {
+            if (!(e instanceof CallNotPermittedException || e instanceof BulkheadFullException
+                    || databaseFailure.test(e))) {
+                throw e;
+            }
+            return fallback.apply(e);
+        }
+    }
+
+    private void write(Runnable command) {
+        CircuitBreaker.decorateRunnable(circuitBreaker(),
+                Bulkhead.decorateRunnable(bulkhead(CUSTOMER_WRITE), command)).run();
+    }
+
+    private CircuitBreaker circuitBreaker() {
+        return circuitBreakerRegistry.circuitBreaker(
+                tenantInstanceName(CUSTOMER_DATABASE), CUSTOMER_DATABASE);
+    }
+
+    private Bulkhead bulkhead(String configName) {
+        return bulkheadRegistry.bulkhead(tenantInstanceName(configName), configName);
+    }
+
+    static String tenantInstanceName(String configName) {
+        return configName + "-" + TenantContext.getTenantId();
+    }
 
+    private ReadResult<List<CustomerResponse>> getCachedCustomers(RuntimeException cause) {
+        return customerCache.getAll()
+                .map(ReadResult::stale)
+                .orElseThrow(() -> cause);
+    }
+
+    private ReadResult<CustomerResponse> getCachedCustomerById(Long id, RuntimeException cause) {
+        return customerCache.get(id)
+                .map(ReadResult::stale)
+                .orElseThrow(() -> cause);
+    }
+
+    private boolean isEmailTaken(String email) {
+        return email != null && customerEmailFilter.mightContain(email) && customerStore.existsByEmail(email);
+    }
+
+    private void recordEmail(String email) {
+        if (email != null) {
+            customerEmailFilter.add(email);
+        }
+    }
+
+    /**
+     * The customer after an update, with the email and address it had before.
+     */
+    private record UpdatedCustomer(Customer customer, String oldEmail, String oldAddress) {
+    }
 }
@@ -0,0 +1,173 @@
+package com.ntloc.demo.customer;
+
+import com.ntloc.demo.tenant.TenancyProperties;
+import com.ntloc.demo.tenant.TenantContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Customer counts of each tenant, total and per email domain and region, kept
+ * up to date by {@link CustomerService} on every write. Reading them never touches the
+ * database.
+ * <p>
+ * The counters are periodically corrected to a fresh aggregate from the
+ * database, which fixes drift from writes made by other instances. Writes
+ * recorded while the aggregate runs are kept on top of it rather than lost.
+ * A tenant whose aggregate fails keeps its counters and is retried every
+ * {@code customer.stats.retry-interval} until it succeeds.
+ */
+@Slf4j
+@Component
+public class CustomerStats {
+
+    static final String UNKNOWN = "unknown";
+
+    private final CustomerStore customerStore;
+    private final TenancyProperties tenancyProperties;
+    private final Map<String, Counters> countersByTenant = new ConcurrentHashMap<>();
+    private final Set<String> failedTenants = ConcurrentHashMap.newKeySet();
+
+    public CustomerStats(CustomerStore customerStore, TenancyProperties tenancyProperties) {
+        this.customerStore = customerStore;
+        this.tenancyProperties = tenancyProperties;
+    }
+
+    public void recordCreated(String email, String address) {
+        Counters current = counters();
+        current.total.increment();
+        current.increment(current.byDomain, domainOf(email), 1);
+        current.increment(current.byRegion, regionOf(address), 1);
+    }
+
+    public void recordUpdated(String oldEmail, String oldAddress, String newEmail, String newAddress) {
+        Counters current = counters();
+        String oldDomain = domainOf(oldEmail);
+        String newDomain = domainOf(newEmail);
+        if (!oldDomain.equals(newDomain)) {
+            current.increment(current.byDomain, oldDomain, -1);
+            current.increment(current.byDomain, newDomain, 1);
+        }
+        String oldRegion = regionOf(oldAddress);
+        String newRegion = regionOf(newAddress);
+        if (!oldRegion.equals(newRegion)) {
+            current.increment(current.byRegion, oldRegion, -1);
+            current.increment(current.byRegion, newRegion, 1);
+        }
+    }
+
+    public void recordDeleted(String email, String address) {
+        Counters current = counters();
+        current.total.decrement();
+        current.increment(current.byDomain, domainOf(email), -1);
+        current.increment(current.byRegion, regionOf(address), -1);
+    }
+
+    public CustomerStatsResponse getStats() {
+        Counters current = counters();
+        return new CustomerStatsResponse(current.total.sum(),
+                sums(current.byDomain),
+                sums(current.byRegion),
+                current.reconciledAt);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${customer.stats.reconcile-interval:PT15M}",
+            initialDelayString = "${customer.stats.reconcile-interval:PT15M}")
+    public void reconcile() {
+        tenancyProperties.getTenantIds().forEach(this::reconcile);
+    }
+
+    @Scheduled(fixedDelayString = "${customer.stats.retry-interval:PT1M}",
+            initialDelayString = "${customer.stats.retry-interval:PT1M}")
+    public void retryFailed() {
+        List.copyOf(failedTenants).forEach(this::reconcile);
+    }
+
+    private void reconcile(String tenantId) {
+        try {
+            TenantContext.runAs(tenantId, this::reconcileTenant);
+            failedTenants.remove(tenantId);
+        } catch (RuntimeException e) {
+            failedTenants.add(tenantId);
+            log.warn("Could not reconcile customer stats of tenant {}, keeping the incremental counters", tenantId, e);
+        }
+    }
+
+    /**
+     * Moves each counter by the difference between the database aggregate and
+     * the value it had just before the aggregate was read, so writes recorded
+     * in the meantime stay counted.
+     */
+    private void reconcileTenant() {
+        Counters current = counters();
+        long total = current.total.sum();
+        current.total.add(customerStore.count() - total);
+        correct(current, current.byDomain, customerStore::countByEmailDomain);
+        correct(current, current.byRegion, customerStore::countByAddress);
+        current.reconciledAt = Instant.now();
+        log.info("Reconciled customer stats of tenant {}: {} customers",
+                TenantContext.getTenantId(), current.total.sum());
+    }
+
+    private Counters counters() {
+        return countersByTenant.computeIfAbsent(TenantContext.getTenantId(), tenantId -> new Counters());
+    }
+
+    static String domainOf(String email) {
+        int at = email == null ? -1 : email.indexOf('@');
+        return at < 0 || at == email.length() - 1 ? UNKNOWN : email.substring(at + 1).toLowerCase(Locale.ROOT);
+    }
+
+    static String regionOf(String address) {
+        return address == null || address.isBlank() ? UNKNOWN : address.trim();
+    }
+
+    private static void correct(Counters counters, Map<String, LongAdder> target,
+                                Supplier<List<CustomerCount>> aggregate) {
+        Map<String, Long> corrections = new HashMap<>();
+        target.forEach((key, counter) -> corrections.put(key, -counter.sum()));
+        for (CustomerCount count : aggregate.get()) {
+            String key = Objects.requireNonNullElse(count.key(), UNKNOWN);
+            corrections.merge(key.isBlank() ? UNKNOWN : key, count.count(), Long::sum);
+        }
+        corrections.forEach((key, correction) -> counters.increment(target, key, correction));
+    }
+
+    private static Map<String, Long> sums(Map<String, LongAdder> counters) {
+        Map<String, Long> sums = new TreeMap<>();
+        counters.forEach((key, counter) -> {
+            long sum = counter.sum();
+            if (sum != 0) {
+                sums.put(key, sum);
+            }
+        });
+        return sums;
+    }
+
+    private static final class Counters {
+
+        private final LongAdder total = new LongAdder();
+        private final Map<String, LongAdder> byDomain = new ConcurrentHashMap<>();
+        private final Map<String, LongAdder> byRegion = new ConcurrentHashMap<>();
+        private volatile Instant reconciledAt;
+
+        private void increment(Map<String, LongAdder> target, String key, long delta) {
+            target.computeIfAbsent(key, ignored -> new LongAdder()).add(delta);
+        }
+    }
+}
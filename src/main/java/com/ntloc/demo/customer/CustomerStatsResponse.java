@@ -0,0 +1,12 @@
+package com.ntloc.demo.customer;
+
+import java.time.Instant;
+import java.util.Map;
+
+public record CustomerStatsResponse(
+        long total,
+        Map<String, Long> byDomain,
+        Map<String, Long> byRegion,
+        Instant reconciledAt
+) {
+}
@@ -0,0 +1,55 @@
+package com.ntloc.demo.customer;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * The customer persistence operations the service layer relies on, so it can
+ * run on PostgreSQL through {@link CustomerRepository} or on the in-memory
+ * store of the "embedded" profile.
+ * <p>
+ * Every implementation keeps emails unique ignoring case, failing
+ * {@link #save} with a {@link org.springframework.dao.DataIntegrityViolationException}
+ * that {@link com.ntloc.demo.exception.EmailConflictPredicate} accepts
+ * otherwise, and hides soft-deleted customers from every read.
+ */
+public interface CustomerStore {
+
+    <S extends Customer> S save(S customer);
+
+    Optional<Customer> findById(Long id);
+
+    Optional<CustomerResponse> findResponseById(Long id);
+
+    List<CustomerResponse> findAllResponses();
+
+    boolean existsByEmail(String email);
+
+    /**
+     * Email hashes of all customers. The stream may hold a database cursor
+     * open and must be closed.
+     */
+    Stream<Long> streamEmailHashes();
+
+    long count();
+
+    List<CustomerCount> countByEmailDomain();
+
+    List<CustomerCount> countByAddress();
+
+    /**
+     * @return the email and address the customer had, empty if the customer
+     * does not exist or was already deleted
+     */
+    Optional<DeletedCustomer> softDeleteById(Long id);
+
+    /**
+     * Hard-deletes at most {@code limit} customers soft-deleted before
+     * {@code deletedBefore}.
+     *
+     * @return the number of customers purged
+     */
+    int purgeDeleted(Instant deletedBefore, int limit);
+}
@@ -0,0 +1,48 @@
+package com.ntloc.demo.customer;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+
+/**
+ * Transactions on the JPA store. The embedded store has no transaction
+ * manager, so its calls run without one.
+ */
+final class CustomerTransactions {
+
+    private CustomerTransactions() {
+    }
+
+    /**
+     * A read-only transaction without a timeout, for background jobs that
+     * scan whole tables.
+     */
+    static TransactionOperations readOnly(PlatformTransactionManager transactionManager) {
+        return of(transactionManager, true, TransactionDefinition.TIMEOUT_DEFAULT);
+    }
+
+    /**
+     * A transaction for a client request. Hibernate bounds every statement
+     * in it, writes included, by the time left until {@code timeout}.
+     */
+    static TransactionOperations request(PlatformTransactionManager transactionManager,
+                                         boolean readOnly,
+                                         Duration timeout) {
+        return of(transactionManager, readOnly, (int) Math.max(1, timeout.toSeconds()));
+    }
+
+    private static TransactionOperations of(PlatformTransactionManager transactionManager,
+                                            boolean readOnly,
+                                            int timeoutSeconds) {
+        if (transactionManager == null) {
+            return TransactionOperations.withoutTransaction();
+        }
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(readOnly);
+        transactionTemplate.setTimeout(timeoutSeconds);
+        return transactionTemplate;
+    }
+}
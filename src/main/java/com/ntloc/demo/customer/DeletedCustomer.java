@@ -0,0 +1,11 @@
+package com.ntloc.demo.customer;
+
+/**
+ * What a soft delete returns about the deleted customer, enough to adjust
+ * {@link CustomerStats} without loading the row again.
+ */
+public record DeletedCustomer(
+        String email,
+        String address
+) {
+}
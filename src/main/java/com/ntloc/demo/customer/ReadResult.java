@@ -0,0 +1,19 @@
+package com.ntloc.demo.customer;
+
+/**
+ * A read served by {@link CustomerService}. Stale results come from
+ * {@link CustomerCache} because the database could not be reached.
+ */
+public record ReadResult<T>(
+        T value,
+        boolean stale
+) {
+
+    public static <T> ReadResult<T> fresh(T value) {
+        return new ReadResult<>(value, false);
+    }
+
+    public static <T> ReadResult<T> stale(T value) {
+        return new ReadResult<>(value, true);
+    }
+}
@@ -0,0 +1,233 @@
+package com.ntloc.demo.customer.embedded;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Concurrent map from primitive {@code long} keys to values, built from
+ * lock-striped open-addressing tables. Keys are never boxed, and reads are
+ * usually lock-free: they run under an optimistic stamp and only take the
+ * segment's read lock when a writer got in the way.
+ */
+final class ConcurrentLongMap<V> {
+
+    private static final int SEGMENT_BITS = 6;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final Segment<V>[] segments;
+
+    @SuppressWarnings("unchecked")
+    ConcurrentLongMap(int expectedSize) {
+        segments = new Segment[1 << SEGMENT_BITS];
+        int perSegment = Math.max(16, Integer.highestOneBit(
+                (int) (expectedSize / LOAD_FACTOR) >> SEGMENT_BITS) << 1);
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment<>(perSegment);
+        }
+    }
+
+    V get(long key) {
+        long hash = hash(key);
+        return segmentFor(hash).get(key, hash);
+    }
+
+    V put(long key, V value) {
+        long hash = hash(key);
+        return segmentFor(hash).put(key, hash, value);
+    }
+
+    V remove(long key) {
+        long hash = hash(key);
+        return segmentFor(hash).remove(key, hash);
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment<V> segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Weakly consistent copy: each segment is copied atomically, but writes
+     * to other segments may land while the copy is in progress.
+     */
+    List<V> values() {
+        List<V> values = new ArrayList<>(size());
+        for (Segment<V> segment : segments) {
+            segment.copyValuesTo(values);
+        }
+        return values;
+    }
+
+    private Segment<V> segmentFor(long hash) {
+        return segments[(int) (hash >>> (64 - SEGMENT_BITS))];
+    }
+
+    // MurmurHash3 finalizer: sequential ids spread evenly over segments and slots.
+    static long hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private static final class Segment<V> {
+
+        private final StampedLock lock = new StampedLock();
+        private long[] keys;
+        private Object[] values;
+        private int size;
+
+        Segment(int capacity) {
+            keys = new long[capacity];
+            values = new Object[capacity];
+        }
+
+        V get(long key, long hash) {
+            long stamp = lock.tryOptimisticRead();
+            long[] currentKeys = keys;
+            Object[] currentValues = values;
+            if (currentKeys.length == currentValues.length) {
+                V value = find(currentKeys, currentValues, key, hash);
+                if (lock.validate(stamp)) {
+                    return value;
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                return find(keys, values, key, hash);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        V put(long key, long hash, V value) {
+            long stamp = lock.writeLock();
+            try {
+                int mask = keys.length - 1;
+                int index = (int) hash & mask;
+                while (values[index] != null) {
+                    if (keys[index] == key) {
+                        @SuppressWarnings("unchecked")
+                        V previous = (V) values[index];
+                        values[index] = value;
+                        return previous;
+                    }
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+                values[index] = value;
+                if (++size > keys.length * LOAD_FACTOR) {
+                    resize();
+                }
+                return null;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        V remove(long key, long hash) {
+            long stamp = lock.writeLock();
+            try {
+                int mask = keys.length - 1;
+                int index = (int) hash & mask;
+                while (values[index] != null && keys[index] != key) {
+                    index = (index + 1) & mask;
+                }
+                if (values[index] == null) {
+                    return null;
+                }
+                @SuppressWarnings("unchecked")
+                V previous = (V) values[index];
+                // Backward-shift deletion keeps probe chains intact without tombstones.
+                int next = index;
+                while (true) {
+                    next = (next + 1) & mask;
+                    if (values[next] == null) {
+                        break;
+                    }
+                    int home = (int) hash(keys[next]) & mask;
+                    boolean movable = next > index
+                            ? home <= index || home > next
+                            : home <= index && home > next;
+                    if (movable) {
+                        keys[index] = keys[next];
+                        values[index] = values[next];
+                        index = next;
+                    }
+                }
+                keys[index] = 0;
+                values[index] = null;
+                size--;
+                return previous;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        int size() {
+            long stamp = lock.readLock();
+            try {
+                return size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void copyValuesTo(List<V> target) {
+            long stamp = lock.readLock();
+            try {
+                for (Object value : values) {
+                    if (value != null) {
+                        target.add((V) value);
+                    }
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            Object[] oldValues = values;
+            long[] newKeys = new long[oldKeys.length << 1];
+            Object[] newValues = new Object[oldValues.length << 1];
+            int mask = newKeys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    int index = (int) hash(oldKeys[i]) & mask;
+                    while (newValues[index] != null) {
+                        index = (index + 1) & mask;
+                    }
+                    newKeys[index] = oldKeys[i];
+                    newValues[index] = oldValues[i];
+                }
+            }
+            keys = newKeys;
+            values = newValues;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <V> V find(long[] keys, Object[] values, long key, long hash) {
+            int mask = keys.length - 1;
+            int index = (int) hash & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                Object value = values[index];
+                if (value == null) {
+                    return null;
+                }
+                if (keys[index] == key) {
+                    return (V) value;
+                }
+                index = (index + 1) & mask;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.ntloc.demo.customer.embedded;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead log of customer changes, written through a
+ * memory-mapped region that grows one chunk at a time. Appends are plain
+ * memory writes; {@link #force()} makes them durable.
+ * <p>
+ * Each entry is {@code [length][crc32][payload]}. Replay stops at the first
+ * zero length or checksum mismatch, which is where a crash cut the log off.
+ */
+final class CustomerLog implements Closeable {
+
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+
+    private final Path file;
+    private final long generation;
+    private final int chunkSize;
+    private final FileChannel channel;
+    private final ByteArrayOutputStream scratch = new ByteArrayOutputStream(256);
+    private final CRC32 crc = new CRC32();
+    private MappedByteBuffer buffer;
+    private long bufferOffset;
+
+    private CustomerLog(Path file, long generation, long endOffset, int chunkSize) throws IOException {
+        this.file = file;
+        this.generation = generation;
+        this.chunkSize = chunkSize;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        map(endOffset, chunkSize);
+    }
+
+    static Path file(Path directory, long generation) {
+        return directory.resolve("customers-" + generation + ".log");
+    }
+
+    /**
+     * Replays the log of the given generation, if any, and opens it for
+     * appending right after its last intact entry.
+     */
+    static CustomerLog open(Path directory, long generation, int chunkSize, Listener listener) throws IOException {
+        Path file = file(directory, generation);
+        long endOffset = Files.exists(file) ? replay(file, listener) : 0;
+        return new CustomerLog(file, generation, endOffset, chunkSize);
+    }
+
+    /**
+     * Starts an empty log for a new generation, replacing any leftover file
+     * from an interrupted snapshot.
+     */
+    static CustomerLog create(Path directory, long generation, int chunkSize) throws IOException {
+        Path file = file(directory, generation);
+        Files.deleteIfExists(file);
+        return new CustomerLog(file, generation, 0, chunkSize);
+    }
+
+    long generation() {
+        return generation;
+    }
+
+    Path file() {
+        return file;
+    }
+
+    void appendPut(CustomerRecord record) throws IOException {
+        scratch.reset();
+        DataOutputStream out = new DataOutputStream(scratch);
+        out.writeByte(PUT);
+        record.writeTo(out);
+        append();
+    }
+
+    void appendDelete(long id) throws IOException {
+        scratch.reset();
+        DataOutputStream out = new DataOutputStream(scratch);
+        out.writeByte(DELETE);
+        out.writeLong(id);
+        append();
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private void append() throws IOException {
+        byte[] payload = scratch.toByteArray();
+        int entrySize = HEADER_SIZE + payload.length;
+        if (buffer.remaining() < entrySize) {
+            buffer.force();
+            map(bufferOffset + buffer.position(), Math.max(chunkSize, entrySize));
+        }
+        crc.reset();
+        crc.update(payload);
+        int start = buffer.position();
+        buffer.position(start + Integer.BYTES);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(payload);
+        // Length goes in last; with the checksum, a torn entry is never replayed.
+        buffer.putInt(start, payload.length);
+    }
+
+    private void map(long offset, int size) throws IOException {
+        bufferOffset = offset;
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, offset, size);
+    }
+
+    private static long replay(Path file, Listener listener) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long offset = 0;
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            CRC32 crc = new CRC32();
+            while (offset + HEADER_SIZE <= size) {
+                header.clear();
+                channel.read(header, offset);
+                int length = header.getInt(0);
+                if (length <= 0 || offset + HEADER_SIZE + length > size) {
+                    break;
+                }
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                channel.read(payload, offset + HEADER_SIZE);
+                crc.reset();
+                crc.update(payload.array());
+                if ((int) crc.getValue() != header.getInt(Integer.BYTES)) {
+                    break;
+                }
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload.array()));
+                byte operation = in.readByte();
+                if (operation == PUT) {
+                    listener.onPut(CustomerRecord.readFrom(in));
+                } else if (operation == DELETE) {
+                    listener.onDelete(in.readLong());
+                } else {
+                    break;
+                }
+                offset += HEADER_SIZE + length;
+            }
+            return offset;
+        }
+    }
+
+    interface Listener {
+
+        void onPut(CustomerRecord record);
+
+        void onDelete(long id);
+    }
+}
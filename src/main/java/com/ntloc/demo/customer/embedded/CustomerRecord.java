@@ -0,0 +1,50 @@
+package com.ntloc.demo.customer.embedded;
+
+import com.ntloc.demo.customer.Customer;
+import com.ntloc.demo.customer.CustomerResponse;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Immutable stored form of a {@link Customer}. Callers only ever see copies,
+ * so mutating a returned entity has no effect until it is saved, as with a
+ * detached JPA entity.
+ */
+record CustomerRecord(long id, String name, String email, String address) {
+
+    static CustomerRecord of(long id, Customer customer) {
+        return new CustomerRecord(id, customer.getName(), customer.getEmail(), customer.getAddress());
+    }
+
+    Customer toCustomer() {
+        return Customer.create(id, name, email, address);
+    }
+
+    CustomerResponse toResponse() {
+        return new CustomerResponse(id, name, email, address);
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeLong(id);
+        writeString(out, name);
+        writeString(out, email);
+        writeString(out, address);
+    }
+
+    static CustomerRecord readFrom(DataInput in) throws IOException {
+        return new CustomerRecord(in.readLong(), readString(in), readString(in), readString(in));
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,323 @@
+package com.ntloc.demo.customer.embedded;
+
+import com.ntloc.demo.customer.Customer;
+import com.ntloc.demo.customer.CustomerCount;
+import com.ntloc.demo.customer.CustomerEmail;
+import com.ntloc.demo.customer.CustomerResponse;
+import com.ntloc.demo.customer.CustomerStore;
+import com.ntloc.demo.customer.DeletedCustomer;
+import io.micrometer.observation.annotation.Observed;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * {@link CustomerStore} that keeps every customer in memory, for edge
+ * and test deployments that run without PostgreSQL. Enabled by the
+ * "embedded" profile.
+ * <p>
+ * Reads never leave the JVM. Writes are serialized, applied to the
+ * in-memory maps and appended to a memory-mapped {@link CustomerLog}. A
+ * periodic snapshot captures the whole store and starts a fresh log
+ * generation, so recovery is one snapshot load plus a short replay.
+ * <p>
+ * Deletes remove customers immediately, so {@link #purgeDeleted} has
+ * nothing to do.
+ */
+@Slf4j
+@Component
+@Profile("embedded")
+@Observed(name = "customer.repository")
+public class EmbeddedCustomerStore implements CustomerStore, Closeable {
+
+    private static final String SNAPSHOT_FILE = "customers.snapshot";
+    private static final int SNAPSHOT_MAGIC = 0x43555354;
+
+    private final ConcurrentLongMap<CustomerRecord> customers;
+    private final ConcurrentHashMap<String, Long> idsByEmail;
+    private final Path directory;
+    private final int logChunkSize;
+    private final Object writeLock = new Object();
+    private CustomerLog changeLog;
+    private long nextId = 1;
+
+    public EmbeddedCustomerStore(@Value("${customer.embedded.directory}") Path directory,
+                                 @Value("${customer.embedded.expected-size:100000}") int expectedSize,
+                                 @Value("${customer.embedded.log-chunk-size:67108864}") int logChunkSize) {
+        this.customers = new ConcurrentLongMap<>(expectedSize);
+        this.idsByEmail = new ConcurrentHashMap<>(expectedSize);
+        this.directory = directory;
+        this.logChunkSize = logChunkSize;
+        try {
+            Files.createDirectories(directory);
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open customer store in " + directory, e);
+        }
+    }
+
+    @Override
+    public <S extends Customer> S save(S entity) {
+        synchronized (writeLock) {
+            Long id = entity.getId();
+            String email = emailKey(entity.getEmail());
+            Long owner = email == null ? null : idsByEmail.get(email);
+            if (owner != null && !owner.equals(id)) {
+                throw new DuplicateKeyException("Customer with email " + entity.getEmail() + " already exists");
+            }
+            if (id == null) {
+                id = nextId;
+                entity.setId(id);
+            }
+            CustomerRecord record = CustomerRecord.of(id, entity);
+            append(() -> changeLog.appendPut(record));
+            apply(record);
+            return entity;
+        }
+    }
+
+    @Override
+    public Optional<Customer> findById(Long id) {
+        CustomerRecord record = customers.get(id);
+        return record == null ? Optional.empty() : Optional.of(record.toCustomer());
+    }
+
+    @Override
+    public long count() {
+        return customers.size();
+    }
+
+    @Override
+    public boolean existsByEmail(String email) {
+        Long id = email == null ? null : idsByEmail.get(emailKey(email));
+        CustomerRecord record = id == null ? null : customers.get(id);
+        return record != null && email.equals(record.email());
+    }
+
+    @Override
+    public Stream<Long> streamEmailHashes() {
+        return customers.values().stream()
+                .map(CustomerRecord::email)
+                .filter(Objects::nonNull)
+                .map(CustomerEmail::hash);
+    }
+
+    @Override
+    public List<CustomerResponse> findAllResponses() {
+        return customers.values().stream()
+                .sorted(Comparator.comparingLong(CustomerRecord::id))
+                .map(CustomerRecord::toResponse)
+                .toList();
+    }
+
+    @Override
+    public Optional<CustomerResponse> findResponseById(Long id) {
+        CustomerRecord record = customers.get(id);
+        return record == null ? Optional.empty() : Optional.of(record.toResponse());
+    }
+
+    @Override
+    public List<CustomerCount> countByEmailDomain() {
+        return countBy(record -> {
+            String email = record.email();
+            int at = email == null ? -1 : email.indexOf('@');
+            return at < 0 ? null : email.substring(at + 1).toLowerCase(Locale.ROOT);
+        });
+    }
+
+    @Override
+    public List<CustomerCount> countByAddress() {
+        return countBy(record -> record.address() == null ? null : record.address().trim());
+    }
+
+    @Override
+    public Optional<DeletedCustomer> softDeleteById(Long id) {
+        synchronized (writeLock) {
+            return Optional.ofNullable(remove(id))
+                    .map(removed -> new DeletedCustomer(removed.email(), removed.address()));
+        }
+    }
+
+    @Override
+    public int purgeDeleted(Instant deletedBefore, int limit) {
+        return 0;
+    }
+
+    public void flush() {
+        synchronized (writeLock) {
+            changeLog.force();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${customer.embedded.flush-interval:PT1S}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    /**
+     * Writes every customer to a new snapshot and switches to an empty log
+     * generation. Writers wait for the snapshot; readers are not blocked.
+     */
+    @Scheduled(fixedDelayString = "${customer.embedded.snapshot-interval:PT5M}",
+            initialDelayString = "${customer.embedded.snapshot-interval:PT5M}")
+    public void snapshot() {
+        synchronized (writeLock) {
+            try {
+                CustomerLog previous = changeLog;
+                CustomerLog next = CustomerLog.create(directory, previous.generation() + 1, logChunkSize);
+                writeSnapshot(next.generation());
+                changeLog = next;
+                previous.close();
+                Files.deleteIfExists(previous.file());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not snapshot customer store in " + directory, e);
+            }
+        }
+    }
+
+    @Override
+    @PreDestroy
+    public void close() throws IOException {
+        snapshot();
+        synchronized (writeLock) {
+            changeLog.close();
+        }
+    }
+
+    private void recover() throws IOException {
+        long generation = 0;
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshot)) {
+            generation = readSnapshot(snapshot);
+        }
+        changeLog = CustomerLog.open(directory, generation, logChunkSize, new CustomerLog.Listener() {
+            @Override
+            public void onPut(CustomerRecord record) {
+                apply(record);
+            }
+
+            @Override
+            public void onDelete(long id) {
+                remove(id);
+            }
+        });
+        log.info("Recovered {} customers from {}", customers.size(), directory);
+    }
+
+    private long readSnapshot(Path snapshot) throws IOException {
+        try (InputStream file = Files.newInputStream(snapshot);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a customer snapshot: " + snapshot);
+            }
+            long generation = in.readLong();
+            nextId = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                apply(CustomerRecord.readFrom(in));
+            }
+            return generation;
+        }
+    }
+
+    private void writeSnapshot(long generation) throws IOException {
+        Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            List<CustomerRecord> records = customers.values();
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(generation);
+            out.writeLong(nextId);
+            out.writeInt(records.size());
+            for (CustomerRecord record : records) {
+                record.writeTo(out);
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(temporary, directory.resolve(SNAPSHOT_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void apply(CustomerRecord record) {
+        CustomerRecord previous = customers.put(record.id(), record);
+        if (previous != null && previous.email() != null && !Objects.equals(previous.email(), record.email())) {
+            idsByEmail.remove(emailKey(previous.email()), previous.id());
+        }
+        if (record.email() != null) {
+            idsByEmail.put(emailKey(record.email()), record.id());
+        }
+        nextId = Math.max(nextId, record.id() + 1);
+    }
+
+    private CustomerRecord remove(long id) {
+        if (customers.get(id) == null) {
+            return null;
+        }
+        if (changeLog != null) {
+            append(() -> changeLog.appendDelete(id));
+        }
+        CustomerRecord removed = customers.remove(id);
+        if (removed != null && removed.email() != null) {
+            idsByEmail.remove(emailKey(removed.email()), id);
+        }
+        return removed;
+    }
+
+    private void append(LogWrite write) {
+        try {
+            write.run();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to customer log " + changeLog.file(), e);
+        }
+    }
+
+    private List<CustomerCount> countBy(Function<CustomerRecord, String> key) {
+        Map<String, Long> counts = new HashMap<>();
+        for (CustomerRecord record : customers.values()) {
+            counts.merge(key.apply(record), 1L, Long::sum);
+        }
+        List<CustomerCount> result = new ArrayList<>(counts.size());
+        counts.forEach((value, count) -> result.add(new CustomerCount(value, count)));
+        return result;
+    }
+
+    // Mirrors the database's unique index on lower(email).
+    private static String emailKey(String email) {
+        return email == null ? null : email.toLowerCase(Locale.ROOT);
+    }
+
+    private interface LogWrite {
+
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,44 @@
+package com.ntloc.demo.exception;
+
+import org.hibernate.TransactionException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.TransactionSystemException;
+
+import java.sql.SQLException;
+import java.util.function.Predicate;
+
+/**
+ * Whether an exception means the database is unavailable rather than that
+ * the request was wrong. The circuit breaker records exactly these, and
+ * clients get a 503 for them.
+ * <p>
+ * Besides the exception types, a connection error (SQLState class 08) or a
+ * failed commit or rollback anywhere in the cause chain counts. When a
+ * socket timeout breaks a connection, the pool closes it at once, and the
+ * rollback that follows fails and replaces the original exception.
+ */
+public class DatabaseFailurePredicate implements Predicate<Throwable> {
+
+    private static final String CONNECTION_EXCEPTION_CLASS = "08";
+
+    @Override
+    public boolean test(Throwable throwable) {
+        if (throwable instanceof DataAccessResourceFailureException
+                || throwable instanceof TransientDataAccessException
+                || throwable instanceof CannotCreateTransactionException) {
+            return true;
+        }
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException && sqlException.getSQLState() != null
+                    && sqlException.getSQLState().startsWith(CONNECTION_EXCEPTION_CLASS)) {
+                return true;
+            }
+            if (cause instanceof TransactionSystemException || cause instanceof TransactionException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,37 @@
+package com.ntloc.demo.exception;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Whether a failed customer write was rejected because its email is taken,
+ * rather than by another constraint such as a value longer than its column
+ * or a missing required value. Only the former means "email unavailable".
+ * <p>
+ * On PostgreSQL that is a unique violation (SQLState 23505) of
+ * {@code ux_customer_email_lower}, or of the primary key of
+ * {@code customer_email} when customer is partitioned. The embedded store
+ * has no other unique key and throws {@link DuplicateKeyException}.
+ */
+public class EmailConflictPredicate implements Predicate<Throwable> {
+
+    private static final String UNIQUE_VIOLATION = "23505";
+    private static final Set<String> EMAIL_CONSTRAINTS = Set.of("ux_customer_email_lower", "customer_email_pkey");
+
+    @Override
+    public boolean test(Throwable throwable) {
+        if (throwable instanceof DuplicateKeyException) {
+            return true;
+        }
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                return UNIQUE_VIOLATION.equals(violation.getSQLState())
+                        && EMAIL_CONSTRAINTS.contains(violation.getConstraintName());
+            }
+        }
+        return false;
+    }
+}
@@ -1,7 +1,11 @@
 package com.ntloc.demo.exception;
 
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.dao.DataAccessException;
 import org.springframework.http.HttpStatus;
+import org.springframework.transaction.TransactionException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -12,6 +16,8 @@ import java.time.ZonedDateTime;
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
+    private final DatabaseFailurePredicate databaseFailure = new DatabaseFailurePredicate();
+
     @ResponseStatus(HttpStatus.CONFLICT)
     @ExceptionHandler(value = CustomerEmailUnavailableException.class)
     public ApiErrorResponse handleCustomerEmailUnavailableException(CustomerEmailUnavailableException ex,
@@ -38,5 +44,73 @@ public class GlobalExceptionHandler {
                 ZonedDateTime.now());
     }
 
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ExceptionHandler(value = IdempotencyKeyInProgressException.class)
+    public ApiErrorResponse handleIdempotencyKeyInProgressException(IdempotencyKeyInProgressException ex,
+                                                                    HttpServletRequest request,
+                                                                    HandlerMethod method) {
+
+        return new ApiErrorResponse(
+                HttpStatus.CONFLICT, ex.getMessage(),
+                request.getRequestURI(),
+                method.getMethod().getName(),
+                ZonedDateTime.now());
+    }
+
+    @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+    @ExceptionHandler(value = IdempotencyKeyReusedException.class)
+    public ApiErrorResponse handleIdempotencyKeyReusedException(IdempotencyKeyReusedException ex,
+                                                                HttpServletRequest request,
+                                                                HandlerMethod method) {
+
+        return new ApiErrorResponse(
+                HttpStatus.UNPROCESSABLE_ENTITY, ex.getMessage(),
+                request.getRequestURI(),
+                method.getMethod().getName(),
+                ZonedDateTime.now());
+    }
+
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ExceptionHandler(value = CallNotPermittedException.class)
+    public ApiErrorResponse handleCallNotPermittedException(CallNotPermittedException ex,
+                                                            HttpServletRequest request,
+                                                            HandlerMethod method) {
+
+        return new ApiErrorResponse(
+                HttpStatus.SERVICE_UNAVAILABLE, "The customer database is unavailable, try again later.",
+                request.getRequestURI(),
+                method.getMethod().getName(),
+                ZonedDateTime.now());
+    }
+
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ExceptionHandler(value = {DataAccessException.class, TransactionException.class})
+    public ApiErrorResponse handleDatabaseUnavailableException(RuntimeException ex,
+                                                               HttpServletRequest request,
+                                                               HandlerMethod method) {
+        if (!databaseFailure.test(ex)) {
+            throw ex;
+        }
+
+        return new ApiErrorResponse(
+                HttpStatus.SERVICE_UNAVAILABLE, "The customer database is unavailable, try again later.",
+                request.getRequestURI(),
+                method.getMethod().getName(),
+                ZonedDateTime.now());
+    }
+
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ExceptionHandler(value = BulkheadFullException.class)
+    public ApiErrorResponse handleBulkheadFullException(BulkheadFullException ex,
+                                                        HttpServletRequest request,
+                                                        HandlerMethod method) {
+
+        return new ApiErrorResponse(
+                HttpStatus.SERVICE_UNAVAILABLE, "Too many concurrent requests, try again later.",
+                request.getRequestURI(),
+                method.getMethod().getName(),
+                ZonedDateTime.now());
+    }
+
 
-}
+}
\ No newline at end of file
@@ -0,0 +1,174 @@
+package com.ntloc.demo.idempotency;
+
+import com.ntloc.demo.exception.CustomerEmailUnavailableException;
+import com.ntloc.demo.exception.IdempotencyKeyInProgressException;
+import com.ntloc.demo.exception.IdempotencyKeyReusedException;
+import com.ntloc.demo.tenant.TenantContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs a request at most once per {@code Idempotency-Key}. Retries get the
+ * first outcome back without running the request again, and a duplicate
+ * that arrives while the first is still running waits for it.
+ * <p>
+ * Outcomes are kept in bounded in-memory maps that evict by TTL and, when
+ * an {@link IdempotencyStore} is configured, also in that store. Every tenant
+ * gets its own in-memory map, so a busy tenant cannot evict another tenant's
+ * keys; the store lives in each tenant's own schema.
+ */
+@Service
+public class IdempotencyService {
+
+    private final Map<String, Map<String, Entry>> tenants = new ConcurrentHashMap<>();
+    private final IdempotencyStore store;
+    private final Duration ttl;
+    private final Duration waitTimeout;
+    private final int maxEntries;
+
+    public IdempotencyService(Optional<IdempotencyStore> store,
+                              @Value("${idempotency.ttl:PT24H}") Duration ttl,
+                              @Value("${idempotency.max-entries:100000}") int maxEntries,
+                              @Value("${idempotency.wait-timeout:PT10S}") Duration waitTimeout) {
+        this.store = store.orElse(null);
+        this.ttl = ttl;
+        this.waitTimeout = waitTimeout;
+        this.maxEntries = maxEntries;
+    }
+
+    public static String fingerprint(String... parts) {
+        return DigestUtils.md5DigestAsHex(String.join("\n", parts).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void execute(String key, String fingerprint, Runnable action) {
+        Map<String, Entry> entries = tenants.computeIfAbsent(TenantContext.getTenantId(), tenantId -> newEntries());
+        while (true) {
+            CompletableFuture<IdempotentResponse> response = new CompletableFuture<>();
+            CompletableFuture<IdempotentResponse> existing = reserve(entries, key, response);
+            if (existing == null) {
+                run(entries, key, fingerprint, action, response);
+                return;
+            }
+            Optional<IdempotentResponse> completed = await(existing);
+            if (completed.isPresent()) {
+                replay(completed.get(), fingerprint);
+                return;
+            }
+            // The first attempt failed unexpectedly and released the key; try again.
+        }
+    }
+
+    private void run(Map<String, Entry> entries, String key, String fingerprint, Runnable action,
+                     CompletableFuture<IdempotentResponse> response) {
+        try {
+            Optional<IdempotentResponse> stored = store == null ? Optional.empty() : store.find(key);
+            if (stored.isPresent()) {
+                response.complete(stored.get());
+                replay(stored.get(), fingerprint);
+                return;
+            }
+            IdempotentResponse outcome;
+            RuntimeException rejection = null;
+            try {
+                action.run();
+                outcome = new IdempotentResponse(fingerprint, HttpStatus.OK.value(), null);
+            } catch (CustomerEmailUnavailableException ex) {
+                outcome = new IdempotentResponse(fingerprint, HttpStatus.CONFLICT.value(), ex.getMessage());
+                rejection = ex;
+            }
+            if (store != null) {
+                store.save(key, outcome, Instant.now().plus(ttl));
+            }
+            response.complete(outcome);
+            if (rejection != null) {
+                throw rejection;
+            }
+        } catch (RuntimeException ex) {
+            if (!response.isDone()) {
+                release(entries, key, response);
+                response.completeExceptionally(ex);
+            }
+            throw ex;
+        }
+    }
+
+    private Optional<IdempotentResponse> await(CompletableFuture<IdempotentResponse> response) {
+        try {
+            return Optional.of(response.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS));
+        } catch (ExecutionException ex) {
+            return Optional.empty();
+        } catch (TimeoutException ex) {
+            throw new IdempotencyKeyInProgressException("A request with the same idempotency key is still in progress.");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyKeyInProgressException("Interrupted while waiting for a request with the same idempotency key.");
+        }
+    }
+
+    private void replay(IdempotentResponse response, String fingerprint) {
+        if (!response.fingerprint().equals(fingerprint)) {
+            throw new IdempotencyKeyReusedException("The idempotency key was already used for a different request.");
+        }
+        if (response.status() == HttpStatus.CONFLICT.value()) {
+            throw new CustomerEmailUnavailableException(response.message());
+        }
+    }
+
+    private Map<String, Entry> newEntries() {
+        return new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    private CompletableFuture<IdempotentResponse> reserve(Map<String, Entry> entries, String key,
+                                                          CompletableFuture<IdempotentResponse> response) {
+        long now = System.nanoTime();
+        synchronized (entries) {
+            evictExpired(entries, now);
+            Entry existing = entries.get(key);
+            if (existing != null) {
+                return existing.response();
+            }
+            entries.put(key, new Entry(response, now + ttl.toNanos()));
+            return null;
+        }
+    }
+
+    private void release(Map<String, Entry> entries, String key, CompletableFuture<IdempotentResponse> response) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.response() == response) {
+                entries.remove(key);
+            }
+        }
+    }
+
+    // Entries are in insertion order and share one TTL, so expired ones sit at the head.
+    private void evictExpired(Map<String, Entry> entries, long now) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext() && iterator.next().expiresAtNanos() - now <= 0) {
+            iterator.remove();
+        }
+    }
+
+    private record Entry(CompletableFuture<IdempotentResponse> response, long expiresAtNanos) {
+    }
+}
@@ -0,0 +1,15 @@
+package com.ntloc.demo.idempotency;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Durable backing for {@link IdempotencyService}, shared between instances
+ * so a retry that lands on another node is still deduplicated.
+ */
+public interface IdempotencyStore {
+
+    Optional<IdempotentResponse> find(String key);
+
+    void save(String key, IdempotentResponse response, Instant expiresAt);
+}
@@ -0,0 +1,12 @@
+package com.ntloc.demo.idempotency;
+
+/**
+ * Outcome of the first request made with an idempotency key, replayed to
+ * every retry of that request.
+ */
+public record IdempotentResponse(
+        String fingerprint,
+        int status,
+        String message
+) {
+}
@@ -0,0 +1,52 @@
+package com.ntloc.demo.idempotency;
+
+import com.ntloc.demo.tenant.TenancyProperties;
+import com.ntloc.demo.tenant.TenantContext;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Optional;
+
+@Component
+@ConditionalOnProperty(name = "idempotency.store", havingValue = "jdbc")
+public class JdbcIdempotencyStore implements IdempotencyStore {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TenancyProperties tenancyProperties;
+
+    public JdbcIdempotencyStore(JdbcTemplate jdbcTemplate, TenancyProperties tenancyProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tenancyProperties = tenancyProperties;
+    }
+
+    @Override
+    public Optional<IdempotentResponse> find(String key) {
+        return jdbcTemplate.query("""
+                        SELECT fingerprint, status, message FROM idempotency_key
+                        WHERE idempotency_key = ? AND expires_at > now()
+                        """,
+                (rs, rowNum) -> new IdempotentResponse(rs.getString("fingerprint"), rs.getInt("status"),
+                        rs.getString("message")),
+                key).stream().findFirst();
+    }
+
+    @Override
+    public void save(String key, IdempotentResponse response, Instant expiresAt) {
+        jdbcTemplate.update("""
+                        INSERT INTO idempotency_key (idempotency_key, fingerprint, status, message, expires_at)
+                        VALUES (?, ?, ?, ?, ?)
+                        ON CONFLICT (idempotency_key) DO NOTHING
+                        """,
+                key, response.fingerprint(), response.status(), response.message(), Timestamp.from(expiresAt));
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.cleanup-interval:PT10M}")
+    public void deleteExpired() {
+        tenancyProperties.getTenantIds().forEach(tenantId -> TenantContext.runAs(tenantId, () ->
+                jdbcTemplate.update("DELETE FROM idempotency_key WHERE expires_at <= now()")));
+    }
+}
@@ -0,0 +1,43 @@
+package com.ntloc.demo.logging;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides whether a request log line is written, so hot endpoints log a
+ * configurable fraction of their requests. Rates are set per endpoint under
+ * {@code customer.logging.sampling.rates} and fall back to
+ * {@code customer.logging.sampling.default-rate}.
+ */
+@Component
+@ConfigurationProperties(prefix = "customer.logging.sampling")
+public class RequestLogSampler {
+
+    private double defaultRate = 1.0;
+    private Map<String, Double> rates = new HashMap<>();
+
+    public boolean sample(String endpoint) {
+        double rate = rates.getOrDefault(endpoint, defaultRate);
+        return rate >= 1.0 || (rate > 0.0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    public double getDefaultRate() {
+        return defaultRate;
+    }
+
+    public void setDefaultRate(double defaultRate) {
+        this.defaultRate = defaultRate;
+    }
+
+    public Map<String, Double> getRates() {
+        return rates;
+    }
+
+    public void setRates(Map<String, Double> rates) {
+        this.rates = rates;
+    }
+}
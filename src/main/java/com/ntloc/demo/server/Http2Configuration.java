@@ -0,0 +1,40 @@
+package com.ntloc.demo.server;
+
+import org.apache.coyote.UpgradeProtocol;
+import org.apache.coyote.http2.Http2Protocol;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.tomcat.TomcatConnectorCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Tunes Tomcat's HTTP/2 (h2c) protocol for gateway traffic: a few long-lived
+ * connections, each carrying many small concurrent requests. Tomcat's
+ * default of 20 concurrently executing streams per connection would queue
+ * most of them.
+ */
+@Configuration(proxyBeanMethods = false)
+public class Http2Configuration {
+
+    @Bean
+    public TomcatConnectorCustomizer http2ConnectorCustomizer(
+            @Value("${http2.max-concurrent-streams:256}") int maxConcurrentStreams,
+            @Value("${http2.max-concurrent-stream-execution:128}") int maxConcurrentStreamExecution,
+            @Value("${http2.keep-alive-timeout:PT60S}") Duration keepAliveTimeout,
+            @Value("${http2.read-timeout:PT5S}") Duration readTimeout,
+            @Value("${http2.write-timeout:PT5S}") Duration writeTimeout) {
+        return connector -> {
+            for (UpgradeProtocol upgradeProtocol : connector.findUpgradeProtocols()) {
+                if (upgradeProtocol instanceof Http2Protocol http2Protocol) {
+                    http2Protocol.setMaxConcurrentStreams(maxConcurrentStreams);
+                    http2Protocol.setMaxConcurrentStreamExecution(maxConcurrentStreamExecution);
+                    http2Protocol.setKeepAliveTimeout(keepAliveTimeout.toMillis());
+                    http2Protocol.setReadTimeout(readTimeout.toMillis());
+                    http2Protocol.setWriteTimeout(writeTimeout.toMillis());
+                }
+            }
+        };
+    }
+}
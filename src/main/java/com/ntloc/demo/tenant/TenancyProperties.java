@@ -0,0 +1,100 @@
+package com.ntloc.demo.tenant;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tenants served by this deployment, under {@code tenancy.tenants}. Each
+ * tenant has its own database schema, connection pool and share of the
+ * request threads. The default tenant always exists and serves requests
+ * without a tenant header. With {@code default-tenant-only} every other
+ * tenant is ignored, for stores that are not partitioned by tenant.
+ */
+@Component
+@ConfigurationProperties(prefix = "tenancy")
+public class TenancyProperties {
+
+    private String header = "X-Tenant-Id";
+    private Map<String, Tenant> tenants = new LinkedHashMap<>(Map.of(TenantContext.DEFAULT_TENANT, new Tenant()));
+    private boolean defaultTenantOnly;
+
+    public Set<String> getTenantIds() {
+        return defaultTenantOnly ? Set.of(TenantContext.DEFAULT_TENANT) : tenants.keySet();
+    }
+
+    /**
+     * The tenant with this id, or {@code null} when it is not configured or
+     * not served by this deployment.
+     */
+    public Tenant getTenant(String tenantId) {
+        return getTenantIds().contains(tenantId) ? tenants.get(tenantId) : null;
+    }
+
+    public String getHeader() {
+        return header;
+    }
+
+    public void setHeader(String header) {
+        this.header = header;
+    }
+
+    public boolean isDefaultTenantOnly() {
+        return defaultTenantOnly;
+    }
+
+    public void setDefaultTenantOnly(boolean defaultTenantOnly) {
+        this.defaultTenantOnly = defaultTenantOnly;
+    }
+
+    public Map<String, Tenant> getTenants() {
+        return tenants;
+    }
+
+    public void setTenants(Map<String, Tenant> tenants) {
+        this.tenants = tenants;
+    }
+
+    public static class Tenant {
+
+        private String schema = "public";
+        private int maximumPoolSize = 10;
+        private int minimumIdle = 2;
+        private int maxConcurrentRequests = 100;
+
+        public String getSchema() {
+            return schema;
+        }
+
+        public void setSchema(String schema) {
+            this.schema = schema;
+        }
+
+        public int getMaximumPoolSize() {
+            return maximumPoolSize;
+        }
+
+        public void setMaximumPoolSize(int maximumPoolSize) {
+            this.maximumPoolSize = maximumPoolSize;
+        }
+
+        public int getMinimumIdle() {
+            return minimumIdle;
+        }
+
+        public void setMinimumIdle(int minimumIdle) {
+            this.minimumIdle = minimumIdle;
+        }
+
+        public int getMaxConcurrentRequests() {
+            return maxConcurrentRequests;
+        }
+
+        public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+            this.maxConcurrentRequests = maxConcurrentRequests;
+        }
+    }
+}
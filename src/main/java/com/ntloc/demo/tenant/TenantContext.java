@@ -0,0 +1,43 @@
+package com.ntloc.demo.tenant;
+
+/**
+ * The tenant the current thread works for. {@link TenantFilter} sets it for
+ * each request, scheduled jobs set it with {@link #runAs} for every
+ * configured tenant, and everything else sees the default tenant.
+ */
+public final class TenantContext {
+
+    public static final String DEFAULT_TENANT = "default";
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private TenantContext() {
+    }
+
+    public static String getTenantId() {
+        String tenantId = CURRENT.get();
+        return tenantId == null ? DEFAULT_TENANT : tenantId;
+    }
+
+    public static void setTenantId(String tenantId) {
+        CURRENT.set(tenantId);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    public static void runAs(String tenantId, Runnable action) {
+        String previous = CURRENT.get();
+        CURRENT.set(tenantId);
+        try {
+            action.run();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+}
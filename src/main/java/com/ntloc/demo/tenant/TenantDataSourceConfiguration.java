@@ -0,0 +1,87 @@
+package com.ntloc.demo.tenant;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One Hikari pool per tenant, all on the configured database, each pinned to
+ * its tenant's schema and sized by the tenant's own limits. Settings under
+ * {@code spring.datasource.hikari} apply to every pool. Flyway migrates each
+ * tenant's schema in turn.
+ */
+@Profile("!embedded")
+@Configuration(proxyBeanMethods = false)
+public class TenantDataSourceConfiguration {
+
+    @Bean
+    @ConfigurationProperties(prefix = "spring.datasource.hikari")
+    HikariConfig tenantPoolDefaults() {
+        return new HikariConfig();
+    }
+
+    @Bean
+    DataSource dataSource(DataSourceProperties dataSourceProperties,
+                          ObjectProvider<JdbcConnectionDetails> connectionDetails,
+                          HikariConfig tenantPoolDefaults,
+                          TenancyProperties tenancyProperties,
+                          ObjectProvider<MeterRegistry> meterRegistry) {
+        JdbcConnectionDetails details = connectionDetails.getIfAvailable(() -> new JdbcConnectionDetails() {
+            @Override
+            public String getUsername() {
+                return dataSourceProperties.determineUsername();
+            }
+
+            @Override
+            public String getPassword() {
+                return dataSourceProperties.determinePassword();
+            }
+
+            @Override
+            public String getJdbcUrl() {
+                return dataSourceProperties.determineUrl();
+            }
+        });
+        Map<String, HikariDataSource> dataSources = new LinkedHashMap<>();
+        tenancyProperties.getTenants().forEach((tenantId, tenant) -> {
+            HikariDataSource dataSource = new HikariDataSource();
+            tenantPoolDefaults.copyStateTo(dataSource);
+            dataSource.setJdbcUrl(details.getJdbcUrl());
+            dataSource.setUsername(details.getUsername());
+            dataSource.setPassword(details.getPassword());
+            dataSource.setDriverClassName(details.getDriverClassName());
+            dataSource.setSchema(tenant.getSchema());
+            dataSource.setMaximumPoolSize(tenant.getMaximumPoolSize());
+            dataSource.setMinimumIdle(tenant.getMinimumIdle());
+            dataSource.setPoolName("customer-" + tenantId);
+            meterRegistry.ifAvailable(registry ->
+                    dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+            dataSources.put(tenantId, dataSource);
+        });
+        return new TenantRoutingDataSource(dataSources);
+    }
+
+    @Bean
+    FlywayMigrationStrategy tenantMigrationStrategy(TenancyProperties tenancyProperties) {
+        return flyway -> tenancyProperties.getTenants().forEach((tenantId, tenant) ->
+                TenantContext.runAs(tenantId, () -> Flyway.configure()
+                        .configuration(flyway.getConfiguration())
+                        .schemas(tenant.getSchema())
+                        .load()
+                        .migrate()));
+    }
+}
@@ -0,0 +1,65 @@
+package com.ntloc.demo.tenant;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Binds each request to the tenant named in the {@code tenancy.header}
+ * header, or to the default tenant when there is none. Unknown tenants, and
+ * every tenant but the default one under {@code tenancy.default-tenant-only},
+ * get 400. A tenant already running {@code max-concurrent-requests} requests
+ * gets 429, so one busy tenant cannot take every request thread.
+ */
+@Component
+public class TenantFilter extends OncePerRequestFilter {
+
+    public static final String TENANT_ATTRIBUTE = TenantFilter.class.getName() + ".tenant";
+
+    private final TenancyProperties tenancyProperties;
+    private final BulkheadRegistry bulkheadRegistry;
+
+    public TenantFilter(TenancyProperties tenancyProperties, BulkheadRegistry bulkheadRegistry) {
+        this.tenancyProperties = tenancyProperties;
+        this.bulkheadRegistry = bulkheadRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String header = request.getHeader(tenancyProperties.getHeader());
+        String tenantId = header == null || header.isBlank() ? TenantContext.DEFAULT_TENANT : header.trim();
+        TenancyProperties.Tenant tenant = tenancyProperties.getTenant(tenantId);
+        if (tenant == null) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), "Unknown tenant " + tenantId);
+            return;
+        }
+        Bulkhead bulkhead = bulkheadRegistry.bulkhead("tenant-" + tenantId, () -> BulkheadConfig.custom()
+                .maxConcurrentCalls(tenant.getMaxConcurrentRequests())
+                .maxWaitDuration(Duration.ZERO)
+                .build());
+        if (!bulkhead.tryAcquirePermission()) {
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Too many concurrent requests for tenant " + tenantId);
+            return;
+        }
+        request.setAttribute(TENANT_ATTRIBUTE, tenantId);
+        TenantContext.setTenantId(tenantId);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            TenantContext.clear();
+            bulkhead.onComplete();
+        }
+    }
+}
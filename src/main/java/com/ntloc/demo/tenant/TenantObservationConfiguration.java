@@ -0,0 +1,32 @@
+package com.ntloc.demo.tenant;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.observation.ObservationFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+
+/**
+ * Tags every observation, and so every timer and span derived from it,
+ * with the tenant it ran for. Tenants come from configuration, so the tag
+ * stays low-cardinality.
+ */
+@Configuration(proxyBeanMethods = false)
+public class TenantObservationConfiguration {
+
+    static final String TENANT_KEY = "tenant";
+
+    @Bean
+    ObservationFilter tenantObservationFilter() {
+        return context -> {
+            String tenantId;
+            if (context instanceof ServerRequestObservationContext serverContext) {
+                Object attribute = serverContext.getCarrier().getAttribute(TenantFilter.TENANT_ATTRIBUTE);
+                tenantId = attribute == null ? "none" : attribute.toString();
+            } else {
+                tenantId = TenantContext.getTenantId();
+            }
+            return context.addLowCardinalityKeyValue(KeyValue.of(TENANT_KEY, tenantId));
+        };
+    }
+}
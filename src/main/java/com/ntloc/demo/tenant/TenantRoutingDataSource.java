@@ -0,0 +1,33 @@
+package com.ntloc.demo.tenant;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import java.util.Map;
+
+/**
+ * Hands out connections from the pool of the tenant in
+ * {@link TenantContext}. Each tenant's pool is bounded on its own, so a
+ * tenant that exhausts its connections only waits on itself.
+ */
+public class TenantRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private final Map<String, HikariDataSource> dataSources;
+
+    public TenantRoutingDataSource(Map<String, HikariDataSource> dataSources) {
+        this.dataSources = dataSources;
+        setTargetDataSources(Map.copyOf(dataSources));
+        setDefaultTargetDataSource(dataSources.get(TenantContext.DEFAULT_TENANT));
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return TenantContext.getTenantId();
+    }
+
+    @Override
+    public void close() {
+        dataSources.values().forEach(HikariDataSource::close);
+    }
+}
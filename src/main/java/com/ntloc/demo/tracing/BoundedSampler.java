@@ -0,0 +1,62 @@
+package com.ntloc.demo.tracing;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.data.LinkData;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import io.opentelemetry.sdk.trace.samplers.SamplingDecision;
+import io.opentelemetry.sdk.trace.samplers.SamplingResult;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples a fixed fraction of new traces, but never more than
+ * {@code maxTracesPerSecond}, so tracing overhead stays bounded when
+ * traffic peaks. Use it as the root sampler of a parent-based sampler.
+ */
+public class BoundedSampler implements Sampler {
+
+    private final Sampler ratioSampler;
+    private final double maxTracesPerSecond;
+    private final long nanosPerTrace;
+    private long availableAtNanos;
+
+    public BoundedSampler(double probability, double maxTracesPerSecond) {
+        this.ratioSampler = Sampler.traceIdRatioBased(probability);
+        this.maxTracesPerSecond = maxTracesPerSecond;
+        this.nanosPerTrace = (long) (TimeUnit.SECONDS.toNanos(1) / maxTracesPerSecond);
+        this.availableAtNanos = System.nanoTime();
+    }
+
+    @Override
+    public SamplingResult shouldSample(Context parentContext, String traceId, String name, SpanKind spanKind,
+                                       Attributes attributes, List<LinkData> parentLinks) {
+        SamplingResult result = ratioSampler.shouldSample(parentContext, traceId, name, spanKind, attributes,
+                parentLinks);
+        if (result.getDecision() == SamplingDecision.DROP || acquire()) {
+            return result;
+        }
+        return SamplingResult.drop();
+    }
+
+    // Token bucket holding at most one second's worth of traces.
+    private synchronized boolean acquire() {
+        long now = System.nanoTime();
+        long earliest = now - TimeUnit.SECONDS.toNanos(1);
+        if (availableAtNanos < earliest) {
+            availableAtNanos = earliest;
+        }
+        if (availableAtNanos > now) {
+            return false;
+        }
+        availableAtNanos += nanosPerTrace;
+        return true;
+    }
+
+    @Override
+    public String getDescription() {
+        return "BoundedSampler{ratio=" + ratioSampler.getDescription() + ", maxTracesPerSecond=" + maxTracesPerSecond + "}";
+    }
+}
@@ -0,0 +1,92 @@
+package com.ntloc.demo.tracing;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Observes every call on Spring Data repositories, so each repository call
+ * gets its own span between the service span and the JDBC spans.
+ * <p>
+ * {@code @Observed} can't be used here: the repositories are JDK proxies,
+ * and annotations on their interfaces are invisible to the aspect.
+ */
+@Component
+public class RepositoryObservationPostProcessor implements BeanPostProcessor {
+
+    static final String OBSERVATION_NAME = "customer.repository";
+
+    private final ObjectProvider<ObservationRegistry> observationRegistry;
+
+    public RepositoryObservationPostProcessor(ObjectProvider<ObservationRegistry> observationRegistry) {
+        this.observationRegistry = observationRegistry;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+            factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                    (proxyFactory, repositoryInformation) -> proxyFactory.addAdvice(new ObservingInterceptor(
+                            repositoryInformation.getRepositoryInterface().getSimpleName()))));
+        }
+        return bean;
+    }
+
+    private final class ObservingInterceptor implements MethodInterceptor {
+
+        private final String repositoryName;
+
+        private ObservingInterceptor(String repositoryName) {
+            this.repositoryName = repositoryName;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            String method = invocation.getMethod().getName();
+            Observation observation = Observation.createNotStarted(OBSERVATION_NAME,
+                            observationRegistry.getIfAvailable(() -> ObservationRegistry.NOOP))
+                    .contextualName(repositoryName + "#" + method)
+                    .lowCardinalityKeyValue("class", repositoryName)
+                    .lowCardinalityKeyValue("method", method)
+                    .start();
+            try (Observation.Scope ignored = observation.openScope()) {
+                Object result = invocation.proceed();
+                if (!(result instanceof Stream<?>)) {
+                    observation.highCardinalityKeyValue("rows", String.valueOf(rows(result)));
+                }
+                return result;
+            } catch (Throwable ex) {
+                observation.error(ex);
+                throw ex;
+            } finally {
+                observation.stop();
+            }
+        }
+
+        // Streams are consumed after the call returns, so their size is unknown here.
+        private static long rows(Object result) {
+            if (result instanceof Collection<?> collection) {
+                return collection.size();
+            }
+            if (result instanceof Optional<?> optional) {
+                return optional.isPresent() ? 1 : 0;
+            }
+            if (result instanceof Number number) {
+                return number.longValue();
+            }
+            if (result instanceof Boolean found) {
+                return found ? 1 : 0;
+            }
+            return result == null ? 0 : 1;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.ntloc.demo.tracing;
+
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration(proxyBeanMethods = false)
+public class TracingConfiguration {
+
+    @Bean
+    public Sampler boundedSampler(@Value("${management.tracing.sampling.probability:0.1}") double probability,
+                                  @Value("${tracing.sampling.max-traces-per-second:100}") double maxTracesPerSecond) {
+        return Sampler.parentBased(new BoundedSampler(probability, maxTracesPerSecond));
+    }
+}
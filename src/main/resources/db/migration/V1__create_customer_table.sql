@@ -0,0 +1,15 @@
+-- Customer rows are updated far more often than they are inserted, so leave
+-- room on each page for HOT updates instead of packing pages full.
+CREATE TABLE customer
+(
+    id      BIGSERIAL PRIMARY KEY,
+    name    VARCHAR(255),
+    email   VARCHAR(255),
+    address VARCHAR(255)
+) WITH (fillfactor = 85);
+
+-- Emails are unique regardless of case.
+CREATE UNIQUE INDEX ux_customer_email_lower ON customer (lower(email));
+
+-- Supports case-insensitive exact and prefix search on name.
+CREATE INDEX ix_customer_name_lower ON customer (lower(name) text_pattern_ops);
@@ -0,0 +1,20 @@
+-- Deleting a customer only tombstones the row; CustomerPurger removes
+-- tombstones in batches later.
+ALTER TABLE customer
+    ADD COLUMN deleted    BOOLEAN NOT NULL DEFAULT FALSE,
+    ADD COLUMN deleted_at TIMESTAMP WITH TIME ZONE;
+
+-- Lets the purger find tombstones without scanning live rows.
+CREATE INDEX ix_customer_deleted_at ON customer (deleted_at) WHERE deleted;
+
+-- A deleted customer must not keep its email reserved. The index is absent
+-- when customer is partitioned, where customer_email enforces uniqueness.
+DO
+$$
+    BEGIN
+        IF to_regclass('ux_customer_email_lower') IS NOT NULL THEN
+            DROP INDEX ux_customer_email_lower;
+            CREATE UNIQUE INDEX ux_customer_email_lower ON customer (lower(email)) WHERE NOT deleted;
+        END IF;
+    END
+$$;
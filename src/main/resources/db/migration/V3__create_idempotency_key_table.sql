@@ -0,0 +1,12 @@
+-- Replayable responses for POST requests carrying an Idempotency-Key header.
+-- Only used when idempotency.store=jdbc.
+CREATE TABLE idempotency_key
+(
+    idempotency_key VARCHAR(255) PRIMARY KEY,
+    fingerprint     VARCHAR(64)              NOT NULL,
+    status          INTEGER                  NOT NULL,
+    message         TEXT,
+    expires_at      TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+CREATE INDEX ix_idempotency_key_expires_at ON idempotency_key (expires_at);
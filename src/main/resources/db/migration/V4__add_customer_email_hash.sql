@@ -0,0 +1,24 @@
+-- Emails are stored trimmed and lower-cased from now on. Rows whose
+-- normalized email would collide with another live customer keep their
+-- original spelling, compared after normalizing both sides so two
+-- differently spelled rows of the same email both keep theirs.
+UPDATE customer c
+SET email = lower(trim(c.email))
+WHERE c.email <> lower(trim(c.email))
+  AND (c.deleted OR NOT EXISTS(SELECT 1
+                               FROM customer o
+                               WHERE o.id <> c.id
+                                 AND NOT o.deleted
+                                 AND lower(trim(o.email)) = lower(trim(c.email))));
+
+-- Fixed-width lookup key for emails: the first 8 bytes of the SHA-256 of
+-- the normalized email, as computed by CustomerEmail.hash. Not unique, a
+-- lookup always compares the email as well.
+ALTER TABLE customer
+    ADD COLUMN email_hash BIGINT;
+
+UPDATE customer
+SET email_hash = ('x' || left(encode(sha256(convert_to(email, 'UTF8')), 'hex'), 16))::bit(64)::bigint
+WHERE email IS NOT NULL;
+
+CREATE INDEX ix_customer_email_hash ON customer (email_hash) WHERE NOT deleted;
@@ -0,0 +1,26 @@
+-- email_hash was only set by the application, so rows written by plain SQL
+-- (bulk loads, manual fixes) kept a NULL hash and were invisible to the
+-- hash-first email lookups and to the email filter. Compute it on every
+-- write instead, with the same formula as V4 and CustomerEmail.hash.
+CREATE FUNCTION customer_email_hash() RETURNS TRIGGER
+    LANGUAGE plpgsql AS
+$$
+BEGIN
+    NEW.email_hash = ('x' || left(encode(sha256(convert_to(NEW.email, 'UTF8')), 'hex'), 16))::bit(64)::bigint;
+    RETURN NEW;
+END
+$$;
+
+CREATE TRIGGER customer_email_hash
+    BEFORE INSERT OR UPDATE OF email
+    ON customer
+    FOR EACH ROW
+EXECUTE FUNCTION customer_email_hash();
+
+UPDATE customer
+SET email_hash = ('x' || left(encode(sha256(convert_to(email, 'UTF8')), 'hex'), 16))::bit(64)::bigint
+WHERE email IS NOT NULL
+  AND email_hash IS NULL;
+
+ALTER TABLE customer
+    ADD CONSTRAINT ck_customer_email_hash CHECK ((email IS NULL) = (email_hash IS NULL));
@@ -0,0 +1,25 @@
+-- Only applied with the "partitioned" profile.
+--
+-- Keeps customer_email in step with soft deletes: a tombstoned customer
+-- releases its email.
+CREATE OR REPLACE FUNCTION customer_email_sync() RETURNS TRIGGER
+    LANGUAGE plpgsql AS
+$$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') AND OLD.email IS NOT NULL AND NOT OLD.deleted THEN
+        DELETE FROM customer_email WHERE email = lower(OLD.email) AND customer_id = OLD.id;
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') AND NEW.email IS NOT NULL AND NOT NEW.deleted THEN
+        INSERT INTO customer_email (email, customer_id) VALUES (lower(NEW.email), NEW.id);
+    END IF;
+    RETURN NULL;
+END
+$$;
+
+DROP TRIGGER customer_email_sync ON customer;
+
+CREATE TRIGGER customer_email_sync
+    AFTER INSERT OR UPDATE OF email, deleted OR DELETE
+    ON customer
+    FOR EACH ROW
+EXECUTE FUNCTION customer_email_sync();
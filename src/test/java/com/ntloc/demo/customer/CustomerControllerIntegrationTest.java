@@ -8,6 +8,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -202,4 +203,36 @@ class CustomerControllerIntegrationTest extends AbstractTestContainersTest {
 
         assertThat(getCustomerByIdResponse.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
     }
+
+    @Test
+    void TestThat_createCustomer_ShouldReplayOriginalResult_WhenIdempotencyKeyIsReused() {
+        //given
+        CreateCustomerRequest createCustomerRequest = new CreateCustomerRequest(
+                "Alice",
+                "alice" + UUID.randomUUID() + "@gmail.com",
+                "US"
+        );
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Idempotency-Key", UUID.randomUUID().toString());
+
+        ResponseEntity<Void> createCustomerResponse = testRestTemplate.exchange(
+                BASED_URL,
+                HttpMethod.POST,
+                new HttpEntity<>(createCustomerRequest, headers),
+                Void.class
+        );
+
+        assertThat(createCustomerResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        //when
+        ResponseEntity<Void> retriedCreateCustomerResponse = testRestTemplate.exchange(
+                BASED_URL,
+                HttpMethod.POST,
+                new HttpEntity<>(createCustomerRequest, headers),
+                Void.class
+        );
+
+        //then
+        assertThat(retriedCreateCustomerResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
 }
\ No newline at end of file
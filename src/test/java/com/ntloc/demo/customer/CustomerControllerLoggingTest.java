@@ -0,0 +1,188 @@
+package com.ntloc.demo.customer;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.ConsoleAppender;
+import ch.qos.logback.core.joran.spi.ConsoleTarget;
+import ch.qos.logback.core.read.ListAppender;
+import com.ntloc.demo.logging.RequestLogSampler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Checks that request log lines are written at the configured sample rates
+ * and that a stuck log writer drops lines instead of holding up requests.
+ * Runs on the embedded store so no database is needed.
+ */
+@ActiveProfiles("embedded")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+class CustomerControllerLoggingTest {
+
+    private static final int REQUESTS = 20_000;
+
+    @TempDir
+    static Path directory;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("customer.embedded.directory", () -> directory.toString());
+        // values() walks the whole table, so keep it small.
+        registry.add("customer.embedded.expected-size", () -> 16);
+    }
+
+    @Autowired
+    private CustomerController customerController;
+
+    @Autowired
+    private RequestLogSampler requestLogSampler;
+
+    private final ListAppender<ILoggingEvent> requestLog = new ListAppender<>();
+
+    private Map<String, Double> configuredRates;
+    private double configuredDefaultRate;
+
+    @BeforeEach
+    void setUp() {
+        configuredRates = new HashMap<>(requestLogSampler.getRates());
+        configuredDefaultRate = requestLogSampler.getDefaultRate();
+    }
+
+    @AfterEach
+    void tearDown() {
+        requestLogSampler.setRates(configuredRates);
+        requestLogSampler.setDefaultRate(configuredDefaultRate);
+        Logger controllerLogger = controllerLogger();
+        controllerLogger.detachAppender(requestLog);
+        controllerLogger.setAdditive(true);
+        requestLog.stop();
+    }
+
+    @Test
+    void TestThat_getCustomers_ShouldLogEveryRequest_WhenRateIsOne() {
+        //given
+        captureRequestLog();
+        requestLogSampler.setRates(Map.of("getCustomers", 1.0));
+
+        //when
+        getCustomers(1000);
+
+        //then
+        assertThat(requestLog.list).hasSize(1000)
+                .allSatisfy(event -> assertThat(event.getFormattedMessage())
+                        .isEqualTo("Received get all customers request"));
+    }
+
+    @Test
+    void TestThat_getCustomers_ShouldLogConfiguredFractionOfRequests_WhenEndpointRateIsSet() {
+        //given
+        captureRequestLog();
+        requestLogSampler.setDefaultRate(1.0);
+        requestLogSampler.setRates(Map.of("getCustomers", 0.1));
+
+        //when
+        getCustomers(REQUESTS);
+
+        //then
+        // 2000 expected; the binomial standard deviation is about 42 lines.
+        assertThat(requestLog.list.size()).isCloseTo(REQUESTS / 10, within(300));
+    }
+
+    @Test
+    void TestThat_getCustomers_ShouldNotLog_WhenRateIsZero() {
+        //given
+        captureRequestLog();
+        requestLogSampler.setRates(Map.of("getCustomers", 0.0));
+
+        //when
+        getCustomers(1000);
+
+        //then
+        assertThat(requestLog.list).isEmpty();
+    }
+
+    @Test
+    void TestThat_getCustomers_ShouldNotBlock_WhenLogWriterIsStuck() {
+        //given
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        AsyncAppender asyncJson = (AsyncAppender) context.getLogger(Logger.ROOT_LOGGER_NAME).getAppender("ASYNC_JSON");
+        ConsoleAppender<ILoggingEvent> jsonConsole = (ConsoleAppender<ILoggingEvent>) asyncJson.getAppender("JSON_CONSOLE");
+        CountDownLatch stuck = new CountDownLatch(1);
+        jsonConsole.setOutputStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+                await(stuck);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                await(stuck);
+            }
+        });
+        requestLogSampler.setRates(Map.of("getCustomers", 1.0));
+
+        //when
+        // Info lines are dropped once the queue is nearly full in any case; warnings
+        // are queued, so only neverBlock keeps them from waiting on a stuck writer.
+        CompletableFuture<Void> requests = CompletableFuture.runAsync(() -> {
+            getCustomers(asyncJson.getQueueSize() * 2);
+            for (int i = 0; i < asyncJson.getQueueSize() * 2; i++) {
+                controllerLogger().warn("Customer database is unavailable");
+            }
+        });
+
+        //then
+        try {
+            assertThat(asyncJson.isNeverBlock()).isTrue();
+            assertThat(requests).succeedsWithin(10, TimeUnit.SECONDS);
+        } finally {
+            stuck.countDown();
+            jsonConsole.setOutputStream(ConsoleTarget.SystemOut.getStream());
+        }
+    }
+
+    private void captureRequestLog() {
+        requestLog.start();
+        Logger controllerLogger = controllerLogger();
+        controllerLogger.addAppender(requestLog);
+        controllerLogger.setAdditive(false);
+    }
+
+    private void getCustomers(int requests) {
+        for (int i = 0; i < requests; i++) {
+            customerController.getCustomers();
+        }
+    }
+
+    private static Logger controllerLogger() {
+        return ((LoggerContext) LoggerFactory.getILoggerFactory()).getLogger(CustomerController.class);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.ntloc.demo.customer;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Seeds the customer table with synthetic rows straight from the database
+ * using {@code generate_series}, so millions of rows load in seconds without
+ * streaming them through the JVM.
+ */
+public class CustomerDataGenerator {
+
+    private static final long BATCH_SIZE = 1_000_000;
+
+    private static final String INSERT_BATCH = """
+            INSERT INTO customer (name, email, address)
+            SELECT (ARRAY ['Alice', 'Bob', 'Carol', 'Dave', 'Eve', 'Frank', 'Grace', 'Heidi'])[1 + g % 8]
+                       || ' ' || (ARRAY ['Smith', 'Nguyen', 'Garcia', 'Muller', 'Tanaka', 'Brown'])[1 + g % 6],
+                   'customer' || g || '@' || (ARRAY ['gmail.com', 'yahoo.com', 'outlook.com', 'example.org'])[1 + g % 4],
+                   (ARRAY ['US', 'UK', 'VN', 'DE', 'FR', 'JP', 'BR', 'IN'])[1 + g % 8]
+            FROM generate_series(?, ?) AS g
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CustomerDataGenerator(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void seed(long count) {
+        for (long from = 1; from <= count; from += BATCH_SIZE) {
+            long to = Math.min(count, from + BATCH_SIZE - 1);
+            jdbcTemplate.update(INSERT_BATCH, from, to);
+        }
+        jdbcTemplate.execute("ANALYZE customer");
+    }
+
+    public long[] idRange() {
+        return jdbcTemplate.queryForObject("SELECT min(id), max(id) FROM customer",
+                (rs, rowNum) -> new long[]{rs.getLong(1), rs.getLong(2)});
+    }
+}
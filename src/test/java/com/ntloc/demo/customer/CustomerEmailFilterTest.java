@@ -0,0 +1,152 @@
+package com.ntloc.demo.customer;
+
+import com.ntloc.demo.tenant.TenancyProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerEmailFilterTest {
+
+    private CustomerEmailFilter underTest;
+
+    @Mock
+    private CustomerStore customerStore;
+
+    @Mock
+    private ObjectProvider<PlatformTransactionManager> transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerEmailFilter(customerStore, new TenancyProperties(), transactionManager, 1000, 0.01);
+    }
+
+    @Test
+    void TestThat_hash_IsFirstEightBytesOfSha256() {
+        //given
+        String email = CustomerEmail.normalize("  Alice@Gmail.com ");
+
+        //when
+        long result = CustomerEmail.hash(email);
+
+        //then
+        assertThat(email).isEqualTo("alice@gmail.com");
+        assertThat(result).isEqualTo(858688249516669138L);
+    }
+
+    @Test
+    void TestThat_mightContain_ReturnsTrue_BeforeFirstRebuild() {
+        //given
+        //when
+        boolean result = underTest.mightContain("alice@gmail.com");
+
+        //then
+        assertThat(result).isTrue();
+        verifyNoInteractions(customerStore);
+    }
+
+    @Test
+    void TestThat_rebuild_ShouldContainStoredAndAddedEmails() {
+        //given
+        when(customerStore.streamEmailHashes())
+                .thenReturn(Stream.of(CustomerEmail.hash("alice@gmail.com")));
+
+        //when
+        underTest.rebuild();
+        underTest.add("bob@gmail.com");
+
+        //then
+        assertThat(underTest.mightContain("alice@gmail.com")).isTrue();
+        assertThat(underTest.mightContain("bob@gmail.com")).isTrue();
+        assertThat(underTest.mightContain("carol@gmail.com")).isFalse();
+    }
+
+    @Test
+    void TestThat_rebuild_ShouldKeepEmailsAddedWhileRebuilding() {
+        //given
+        when(customerStore.streamEmailHashes())
+                .thenReturn(Stream.of(CustomerEmail.hash("alice@gmail.com")));
+        underTest.rebuild();
+        when(customerStore.streamEmailHashes()).thenReturn(Stream.of(CustomerEmail.hash("alice@gmail.com"))
+                .peek(hash -> underTest.add("bob@gmail.com"))
+                .onClose(() -> underTest.add("carol@gmail.com")));
+
+        //when
+        underTest.rebuild();
+        underTest.add("dave@gmail.com");
+
+        //then
+        assertThat(underTest.mightContain("bob@gmail.com")).isTrue();
+        assertThat(underTest.mightContain("carol@gmail.com")).isTrue();
+        assertThat(underTest.mightContain("dave@gmail.com")).isTrue();
+    }
+
+    @Test
+    void TestThat_add_ShouldNotBeLost_WhenRacingRebuilds() throws Exception {
+        //given
+        Set<Long> stored = ConcurrentHashMap.newKeySet();
+        // Stub only, so the rebuild loop does not record millions of invocations.
+        CustomerStore racingStore = mock(CustomerStore.class, withSettings().stubOnly());
+        when(racingStore.streamEmailHashes()).thenAnswer(invocation -> List.copyOf(stored).stream());
+        CustomerEmailFilter filter = new CustomerEmailFilter(racingStore, new TenancyProperties(),
+                transactionManager, 20_000, 0.01);
+        filter.rebuild();
+        AtomicBoolean adding = new AtomicBoolean(true);
+        Thread rebuilder = new Thread(() -> {
+            while (adding.get()) {
+                filter.rebuild();
+            }
+        });
+        rebuilder.start();
+
+        //when
+        List<String> lost = new ArrayList<>();
+        try {
+            for (int i = 0; i < 20_000; i++) {
+                String email = "customer" + i + "@gmail.com";
+                stored.add(CustomerEmail.hash(email));
+                filter.add(email);
+                if (!filter.mightContain(email)) {
+                    lost.add(email);
+                }
+            }
+        } finally {
+            adding.set(false);
+            rebuilder.join();
+        }
+
+        //then
+        assertThat(lost).isEmpty();
+    }
+
+    @Test
+    void TestThat_mightContain_StaysNearTargetFalsePositiveRate() {
+        //given
+        when(customerStore.streamEmailHashes()).thenReturn(IntStream.range(0, 1000)
+                .mapToObj(i -> CustomerEmail.hash("customer" + i + "@gmail.com")));
+        underTest.rebuild();
+
+        //when
+        long falsePositives = IntStream.range(0, 10000)
+                .filter(i -> underTest.mightContain("other" + i + "@gmail.com"))
+                .count();
+
+        //then
+        assertThat(falsePositives).isLessThan(200);
+    }
+}
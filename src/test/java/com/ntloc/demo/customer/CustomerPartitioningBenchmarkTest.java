@@ -0,0 +1,208 @@
+package com.ntloc.demo.customer;
+
+import com.ntloc.demo.AbstractTestContainersTest;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+@Tag("benchmark")
+@Testcontainers
+@ActiveProfiles("partitioned")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+class CustomerPartitioningBenchmarkTest extends AbstractTestContainersTest {
+
+    private static final long CUSTOMERS = Long.getLong("benchmark.customers", 1_000_000);
+    private static final int LOOKUPS = Integer.getInteger("benchmark.lookups", 20_000);
+
+    private static final long MAX_PRUNING_OVERHEAD = 3;
+    // About three times the p99 measured locally over a million customers.
+    private static final long P99_SLO_MS = Long.getLong("benchmark.p99-ms", 20);
+
+    private static final String FIND_BY_ID = "SELECT id, name, email, address FROM %s WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CustomerService customerService;
+
+    private CustomerDataGenerator generator;
+
+    @BeforeEach
+    void setUp() {
+        generator = new CustomerDataGenerator(jdbcTemplate);
+        Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM customer", Long.class);
+        if (count == null || count < CUSTOMERS) {
+            long started = System.nanoTime();
+            generator.seed(CUSTOMERS);
+            log.info("seeded {} customers in {} ms", CUSTOMERS, millisSince(started));
+        }
+        // The same rows in a plain heap table, so partitioned lookups have a
+        // baseline measured on the same database and data.
+        jdbcTemplate.execute("""
+                DO
+                $$
+                    BEGIN
+                        IF to_regclass('customer_baseline') IS NULL THEN
+                            CREATE TABLE customer_baseline AS SELECT id, name, email, address FROM customer;
+                            ALTER TABLE customer_baseline ADD PRIMARY KEY (id);
+                            ANALYZE customer_baseline;
+                        END IF;
+                    END
+                $$
+                """);
+    }
+
+    @Test
+    void TestThat_idLookup_ScansOnlyOnePartition() {
+        //given
+        long id = generator.idRange()[0];
+
+        //when
+        List<String> plan = jdbcTemplate.queryForList(
+                "EXPLAIN (COSTS OFF) SELECT * FROM customer WHERE id = " + id, String.class);
+
+        //then
+        assertThat(plan.stream().filter(line -> line.contains("customer_p")).count()).isEqualTo(1);
+    }
+
+    @Test
+    void TestThat_bulkAggregate_RunsPartitionWise() {
+        //given
+        String query = "SELECT address, count(*) FROM customer GROUP BY address";
+
+        //when
+        List<String> plan = jdbcTemplate.queryForList("EXPLAIN (COSTS OFF) " + query, String.class);
+
+        //then
+        assertThat(plan)
+                .as("aggregate is pushed below the append into each partition")
+                .anySatisfy(line -> assertThat(line).containsPattern("Parallel Append|Append"))
+                .filteredOn(line -> line.contains("Aggregate"))
+                .hasSizeGreaterThan(1);
+    }
+
+    @Test
+    void TestThat_prunedIdLookup_BeatsUnprunedAndStaysNearUnpartitionedBaseline() {
+        //given
+        long[] ids = randomIds(generator.idRange());
+        lookUp("customer", true, ids);
+        lookUp("customer", false, ids);
+        lookUp("customer_baseline", true, ids);
+
+        //when
+        long[] pruned = lookUp("customer", true, ids);
+        long[] unpruned = lookUp("customer", false, ids);
+        long[] baseline = lookUp("customer_baseline", true, ids);
+
+        //then
+        log.info("id lookup over {} customers: pruned p50={} us, unpruned p50={} us, unpartitioned p50={} us",
+                CUSTOMERS, percentile(pruned, 0.50), percentile(unpruned, 0.50), percentile(baseline, 0.50));
+        assertThat(percentile(pruned, 0.50)).isLessThan(percentile(unpruned, 0.50));
+        // Pruning costs planning time a heap table does not pay; it must not
+        // grow with the partition count.
+        assertThat(percentile(pruned, 0.50)).isLessThan(MAX_PRUNING_OVERHEAD * percentile(baseline, 0.50));
+    }
+
+    @Test
+    void TestThat_getCustomerById_StaysWithinP99AtScale() {
+        //given
+        long[] range = generator.idRange();
+        long[] latencies = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS / 10; i++) {
+            customerService.getCustomerById(randomId(range));
+        }
+
+        //when
+        for (int i = 0; i < LOOKUPS; i++) {
+            long started = System.nanoTime();
+            customerService.getCustomerById(randomId(range));
+            latencies[i] = System.nanoTime() - started;
+        }
+
+        //then
+        Arrays.sort(latencies);
+        log.info("getCustomerById over {} customers: p50={} us p99={} us p999={} us",
+                CUSTOMERS, percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999));
+        assertThat(percentile(latencies, 0.99)).isLessThanOrEqualTo(P99_SLO_MS * 1_000);
+    }
+
+    @Test
+    void TestThat_vacuum_OfOnePartition_IsCheaperThanWholeTable() {
+        //given
+        jdbcTemplate.update("UPDATE customer SET address = address WHERE id % 10 = 0");
+
+        //when
+        long started = System.nanoTime();
+        jdbcTemplate.execute("VACUUM (ANALYZE) customer_p0");
+        long partitionMillis = millisSince(started);
+
+        started = System.nanoTime();
+        jdbcTemplate.execute("VACUUM (ANALYZE) customer");
+        long tableMillis = millisSince(started);
+
+        //then
+        log.info("vacuum over {} customers: one partition={} ms whole table={} ms",
+                CUSTOMERS, partitionMillis, tableMillis);
+        assertThat(partitionMillis).isLessThanOrEqualTo(tableMillis);
+    }
+
+    private long[] lookUp(String table, boolean pruning, long[] ids) {
+        return jdbcTemplate.execute((ConnectionCallback<long[]>) connection -> {
+            try (Statement settings = connection.createStatement();
+                 PreparedStatement statement = connection.prepareStatement(FIND_BY_ID.formatted(table))) {
+                settings.execute("SET enable_partition_pruning = " + pruning);
+                long[] latencies = new long[ids.length];
+                for (int i = 0; i < ids.length; i++) {
+                    long started = System.nanoTime();
+                    statement.setLong(1, ids[i]);
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        resultSet.next();
+                    }
+                    latencies[i] = System.nanoTime() - started;
+                }
+                settings.execute("RESET enable_partition_pruning");
+                Arrays.sort(latencies);
+                return latencies;
+            }
+        });
+    }
+
+    private static long[] randomIds(long[] range) {
+        long[] ids = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            ids[i] = randomId(range);
+        }
+        return ids;
+    }
+
+    private static long randomId(long[] range) {
+        return ThreadLocalRandom.current().nextLong(range[0], range[1] + 1);
+    }
+
+    private static long percentile(long[] sortedNanos, double percentile) {
+        int index = (int) Math.min(sortedNanos.length - 1, Math.ceil(percentile * sortedNanos.length) - 1);
+        return sortedNanos[index] / 1_000;
+    }
+
+    private static long millisSince(long startedNanos) {
+        return (System.nanoTime() - startedNanos) / 1_000_000;
+    }
+}
@@ -0,0 +1,73 @@
+package com.ntloc.demo.customer;
+
+import com.ntloc.demo.tenant.TenancyProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerPurgerTest {
+
+    private CustomerPurger underTest;
+
+    @Mock
+    private CustomerStore customerStore;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerPurger(customerStore, new TenancyProperties(), Duration.ofDays(1), 100, 3, Duration.ZERO);
+    }
+
+    @Test
+    void TestThat_purge_ShouldStopAtFirstPartialBatch() {
+        //given
+        when(customerStore.purgeDeleted(any(Instant.class), eq(100)))
+                .thenReturn(100, 40);
+
+        //when
+        int result = underTest.purge();
+
+        //then
+        assertThat(result).isEqualTo(140);
+        verify(customerStore, times(2)).purgeDeleted(any(Instant.class), eq(100));
+    }
+
+    @Test
+    void TestThat_purge_ShouldNotExceedMaxBatchesPerRun() {
+        //given
+        when(customerStore.purgeDeleted(any(Instant.class), eq(100)))
+                .thenReturn(100);
+
+        //when
+        int result = underTest.purge();
+
+        //then
+        assertThat(result).isEqualTo(300);
+        verify(customerStore, times(3)).purgeDeleted(any(Instant.class), eq(100));
+    }
+
+    @Test
+    void TestThat_purge_ShouldOnlyPurgeTombstonesOlderThanRetention() {
+        //given
+        Instant before = Instant.now().minus(Duration.ofDays(1));
+
+        //when
+        underTest.purge();
+
+        //then
+        verify(customerStore).purgeDeleted(
+                argThat(deletedBefore -> !deletedBefore.isBefore(before)
+                        && deletedBefore.isBefore(Instant.now().minus(Duration.ofHours(23)))),
+                eq(100));
+    }
+}
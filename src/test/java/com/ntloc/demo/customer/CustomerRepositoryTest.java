@@ -1,25 +1,37 @@
 package com.ntloc.demo.customer;
 
+import com.ntloc.demo.exception.EmailConflictPredicate;
 import org.junit.jupiter.api.AfterEach;
-import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import org.testcontainers.utility.DockerImageName;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+// Every call commits on its own, as it does behind CustomerService.
 @DataJpaTest
 @Testcontainers
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
 @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
-class CustomerRepositoryTest {
+class CustomerRepositoryTest extends CustomerStoreContractTest {
 
     @Container
     @ServiceConnection
@@ -27,22 +39,29 @@ class CustomerRepositoryTest {
             = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
 
     @Autowired
-    private CustomerRepository underTest;
+    private CustomerRepository customerRepository;
 
-    @BeforeEach
-    void setUp() {
-        String email = "alice@gmail.com";
-        Customer customer = Customer.create(
-                "Alice",
-                email,
-                "US"
-        );
-        underTest.save(customer);
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    protected CustomerStore store() {
+        return customerRepository;
+    }
+
+    @Override
+    protected <T> T read(Supplier<T> read) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        return transactionTemplate.execute(status -> read.get());
     }
 
     @AfterEach
     void tearDown() {
-        underTest.deleteAll();
+        customerRepository.deleteAll();
     }
 
     @Test
@@ -51,13 +70,43 @@ class CustomerRepositoryTest {
         assertThat(postgreSQLContainer.isRunning()).isTrue();
     }
 
+    @Test
+    void TestThat_save_ShouldNotReportEmailConflict_WhenNameIsTooLong() {
+        //given
+        Customer customer = Customer.create("A".repeat(256), "bob@yahoo.com", "UK");
+
+        //when
+        //then
+        assertThatThrownBy(() -> underTest.save(customer))
+                .isInstanceOf(DataIntegrityViolationException.class)
+                .matches(new EmailConflictPredicate().negate());
+    }
+
+    @Test
+    void TestThat_existsByEmail_ReturnsTrue_WhenCustomerWasInsertedWithPlainSql() {
+        //given
+        jdbcTemplate.update("INSERT INTO customer (name, email, address) VALUES ('Bob', 'bob@yahoo.com', 'UK')");
+
+        //when
+        boolean exists = underTest.existsByEmail("bob@yahoo.com");
+        List<Long> hashes = read(() -> {
+            try (Stream<Long> stream = underTest.streamEmailHashes()) {
+                return stream.toList();
+            }
+        });
+
+        //then
+        assertThat(exists).isTrue();
+        assertThat(hashes).contains(CustomerEmail.hash("bob@yahoo.com"));
+    }
+
     @Test
     void TestThat_findByEmail_ReturnsCustomer_WhenEmailExists() {
         //given
         String email = "alice@gmail.com";
 
         //when
-        Optional<Customer> result = underTest.findByEmail(email);
+        Optional<Customer> result = customerRepository.findByEmail(email);
 
         //then
         assertThat(result).isPresent();
@@ -69,9 +118,9 @@ class CustomerRepositoryTest {
         String email = "alex@gmail.com";
 
         //when
-        Optional<Customer> result = underTest.findByEmail(email);
+        Optional<Customer> result = customerRepository.findByEmail(email);
 
         //then
         assertThat(result).isNotPresent();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,299 @@
+package com.ntloc.demo.customer;
+
+import com.ntloc.demo.AbstractTestContainersTest;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Injects faults below the JPA path and checks what clients see: stale
+ * reads from the cache, 503s instead of 500s, fast rejections once the
+ * circuit is open, and writes that cannot take read capacity.
+ * <p>
+ * The faults are real: the tenant's pool is exhausted by holding all its
+ * connections, so Hikari's connection-timeout fires, or one of them locks
+ * the customer table, so the request timeout cancels the blocked read or
+ * insert.
+ */
+@Testcontainers
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "tenancy.tenants.default.maximum-pool-size=" + CustomerResilienceTest.POOL_SIZE,
+        "tenancy.tenants.default.minimum-idle=0",
+        "spring.datasource.hikari.connection-timeout=" + CustomerResilienceTest.CONNECTION_TIMEOUT_MILLIS,
+        "customer.database.request-timeout=" + CustomerResilienceTest.REQUEST_TIMEOUT_SECONDS + "s",
+        "resilience4j.circuitbreaker.configs.customerDatabase.sliding-window-type=COUNT_BASED",
+        "resilience4j.circuitbreaker.configs.customerDatabase.sliding-window-size=4",
+        "resilience4j.circuitbreaker.configs.customerDatabase.minimum-number-of-calls=4",
+        "resilience4j.circuitbreaker.configs.customerDatabase.wait-duration-in-open-state=1m",
+        "resilience4j.circuitbreaker.configs.customerDatabase.automatic-transition-from-open-to-half-open-enabled=false",
+        "resilience4j.bulkhead.configs.customerWrite.max-concurrent-calls=1"
+})
+class CustomerResilienceTest extends AbstractTestContainersTest {
+
+    static final int POOL_SIZE = 3;
+    static final long CONNECTION_TIMEOUT_MILLIS = 500;
+    static final long REQUEST_TIMEOUT_SECONDS = 2;
+
+    private final String BASED_URL = "/api/v1/customers";
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @Autowired
+    private CustomerStore customerStore;
+
+    @Autowired
+    private CustomerStats customerStats;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private final List<Connection> heldConnections = new ArrayList<>();
+
+    private Connection locker;
+
+    @BeforeEach
+    void setUp() {
+        circuitBreaker().reset();
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        // Each connection holds an observation scope open on this thread, and
+        // scopes must close in reverse order or a stale one stays current.
+        Collections.reverse(heldConnections);
+        for (Connection connection : heldConnections) {
+            connection.close();
+        }
+        heldConnections.clear();
+        if (locker != null) {
+            locker.rollback();
+            locker.close();
+            locker = null;
+        }
+    }
+
+    @Test
+    void TestThat_getCustomerById_ShouldServeStaleCustomer_WhenPoolTimesOut() throws SQLException {
+        //given
+        Customer customer = customerStore.save(Customer.create("Alice", uniqueEmail(), "US"));
+        ResponseEntity<CustomerResponse> fresh = testRestTemplate.getForEntity(
+                BASED_URL + "/" + customer.getId(), CustomerResponse.class);
+        exhaustPool();
+
+        //when
+        ResponseEntity<CustomerResponse> response = testRestTemplate.getForEntity(
+                BASED_URL + "/" + customer.getId(), CustomerResponse.class);
+
+        //then
+        assertThat(fresh.getHeaders().containsKey(HttpHeaders.WARNING)).isFalse();
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isEqualTo(fresh.getBody());
+        assertThat(response.getHeaders().getFirst(HttpHeaders.WARNING)).isEqualTo(CustomerController.STALE_WARNING);
+        assertThat(circuitBreaker().getMetrics().getNumberOfFailedCalls()).isEqualTo(1);
+    }
+
+    @Test
+    void TestThat_createCustomer_ShouldReturnServiceUnavailable_WhenPoolTimesOut() throws SQLException {
+        //given
+        exhaustPool();
+
+        //when
+        ResponseEntity<String> response = testRestTemplate.postForEntity(BASED_URL,
+                new CreateCustomerRequest("Alice", uniqueEmail(), "US"), String.class);
+
+        //then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(circuitBreaker().getMetrics().getNumberOfFailedCalls()).isEqualTo(1);
+    }
+
+    @Test
+    void TestThat_getCustomerById_ShouldFailOnRequestTimeout_WhenTableIsLocked() throws SQLException {
+        //given
+        Customer customer = customerStore.save(Customer.create("Alice", uniqueEmail(), "US"));
+        lockCustomerTable("ACCESS EXCLUSIVE");
+
+        //when
+        long start = System.nanoTime();
+        ResponseEntity<String> response = testRestTemplate.getForEntity(
+                BASED_URL + "/" + customer.getId(), String.class);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        //then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertWithinRequestTimeout(elapsedMillis);
+        assertThat(circuitBreaker().getMetrics().getNumberOfFailedCalls()).isEqualTo(1);
+    }
+
+    @Test
+    void TestThat_createCustomer_ShouldFailOnRequestTimeout_WhenTableIsLocked() throws SQLException {
+        //given
+        lockCustomerTable("SHARE");
+
+        //when
+        long start = System.nanoTime();
+        ResponseEntity<String> response = testRestTemplate.postForEntity(BASED_URL,
+                new CreateCustomerRequest("Alice", uniqueEmail(), "US"), String.class);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        //then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertWithinRequestTimeout(elapsedMillis);
+        assertThat(circuitBreaker().getMetrics().getNumberOfFailedCalls()).isEqualTo(1);
+    }
+
+    @Test
+    void TestThat_getCustomerById_ShouldStopWaitingForConnections_WhenCircuitOpens() throws SQLException {
+        //given
+        Long id = customerStore.save(Customer.create("Alice", uniqueEmail(), "US")).getId();
+        exhaustPool();
+        for (int i = 0; i < 4; i++) {
+            testRestTemplate.getForEntity(BASED_URL + "/" + id, String.class);
+        }
+
+        //when
+        long start = System.nanoTime();
+        ResponseEntity<String> response = testRestTemplate.getForEntity(BASED_URL + "/" + id, String.class);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        //then
+        assertThat(circuitBreaker().getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(circuitBreaker().getMetrics().getNumberOfNotPermittedCalls()).isEqualTo(1);
+        // The circuit breaker runs outside the transaction, so a rejected call
+        // never waits for a connection.
+        assertThat(elapsedMillis).isLessThan(CONNECTION_TIMEOUT_MILLIS);
+    }
+
+    @Test
+    void TestThat_getCustomerById_ShouldNotCountMissingCustomerAsFailure() {
+        //given
+        Long id = Long.MAX_VALUE;
+
+        //when
+        ResponseEntity<String> response = testRestTemplate.getForEntity(BASED_URL + "/" + id, String.class);
+
+        //then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(circuitBreaker().getMetrics().getNumberOfFailedCalls()).isZero();
+    }
+
+    @Test
+    void TestThat_createCustomer_ShouldBeRejected_WhenWriteBulkheadIsFull_WhileReadsAreServed() throws Exception {
+        //given
+        Long id = customerStore.save(Customer.create("Bob", uniqueEmail(), "UK")).getId();
+        lockCustomerTable("SHARE");
+        CompletableFuture<ResponseEntity<String>> blocked = CompletableFuture.supplyAsync(() ->
+                testRestTemplate.postForEntity(BASED_URL,
+                        new CreateCustomerRequest("Alice", uniqueEmail(), "US"), String.class));
+        awaitLockWaiter();
+
+        //when
+        ResponseEntity<String> rejected = testRestTemplate.postForEntity(BASED_URL,
+                new CreateCustomerRequest("Carol", uniqueEmail(), "US"), String.class);
+        ResponseEntity<String> read = testRestTemplate.getForEntity(BASED_URL + "/" + id, String.class);
+        locker.commit();
+
+        //then
+        assertThat(rejected.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(read.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(blocked.get(10, TimeUnit.SECONDS).getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void TestThat_reconcile_ShouldOutlastRequestTimeout_WhenTableIsLocked() throws Exception {
+        //given
+        customerStore.save(Customer.create("Alice", uniqueEmail(), "US"));
+        lockCustomerTable("ACCESS EXCLUSIVE");
+        CompletableFuture<Void> reconcile = CompletableFuture.runAsync(customerStats::reconcile);
+        awaitLockWaiter();
+
+        //when
+        Thread.sleep(TimeUnit.SECONDS.toMillis(REQUEST_TIMEOUT_SECONDS + 1));
+        locker.commit();
+
+        //then
+        reconcile.get(10, TimeUnit.SECONDS);
+        assertThat(customerStats.getStats().total()).isEqualTo(customerStore.count());
+    }
+
+    /**
+     * Hibernate gives each statement the time left in the transaction,
+     * rounded down to whole seconds, so a blocked statement gives up at most
+     * one second early.
+     */
+    private static void assertWithinRequestTimeout(long elapsedMillis) {
+        assertThat(elapsedMillis).isBetween(TimeUnit.SECONDS.toMillis(REQUEST_TIMEOUT_SECONDS - 1),
+                TimeUnit.SECONDS.toMillis(REQUEST_TIMEOUT_SECONDS) + 500);
+    }
+
+    private CircuitBreaker circuitBreaker() {
+        return circuitBreakerRegistry.circuitBreaker(CustomerService.tenantInstanceName(CustomerService.CUSTOMER_DATABASE),
+                CustomerService.CUSTOMER_DATABASE);
+    }
+
+    private void exhaustPool() throws SQLException {
+        for (int i = 0; i < POOL_SIZE; i++) {
+            heldConnections.add(dataSource.getConnection());
+        }
+    }
+
+    /**
+     * Locks the customer table from one of the pool's connections until the
+     * test ends. SHARE blocks writes only, ACCESS EXCLUSIVE blocks reads too.
+     */
+    private void lockCustomerTable(String mode) throws SQLException {
+        locker = dataSource.getConnection();
+        locker.setAutoCommit(false);
+        try (Statement statement = locker.createStatement()) {
+            statement.execute("LOCK TABLE customer IN " + mode + " MODE");
+        }
+    }
+
+    private void awaitLockWaiter() throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        try (Statement statement = locker.createStatement()) {
+            while (System.nanoTime() < deadline) {
+                try (ResultSet waiters = statement.executeQuery(
+                        "SELECT count(*) FROM pg_stat_activity WHERE wait_event_type = 'Lock'")) {
+                    waiters.next();
+                    if (waiters.getInt(1) > 0) {
+                        return;
+                    }
+                }
+                Thread.sleep(10);
+            }
+        }
+        throw new AssertionError("no write is waiting on the customer table lock");
+    }
+
+    private static String uniqueEmail() {
+        return "alice" + UUID.randomUUID() + "@gmail.com";
+    }
+}
@@ -2,6 +2,12 @@ package com.ntloc.demo.customer;
 
 import com.ntloc.demo.exception.CustomerEmailUnavailableException;
 import com.ntloc.demo.exception.CustomerNotFoundException;
+import com.ntloc.demo.tenant.TenantContext;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -9,7 +15,15 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -23,14 +37,32 @@ class CustomerServiceTest {
     private CustomerService underTest;
 
     @Mock
-    private CustomerRepository customerRepository;
+    private CustomerStore customerStore;
+
+    @Mock
+    private CustomerStats customerStats;
+
+    @Mock
+    private CustomerEmailFilter customerEmailFilter;
+
+    @Mock
+    private CustomerCache customerCache;
 
     @Captor
     private ArgumentCaptor<Customer> customerArgumentCaptor;
 
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
     @BeforeEach
     void setUp() {
-        underTest = new CustomerService(customerRepository);
+        circuitBreakerRegistry = CircuitBreakerRegistry.of(
+                Map.of(CustomerService.CUSTOMER_DATABASE, CircuitBreakerConfig.ofDefaults()));
+        BulkheadRegistry bulkheadRegistry = BulkheadRegistry.of(Map.of(
+                CustomerService.CUSTOMER_READ, BulkheadConfig.ofDefaults(),
+                CustomerService.CUSTOMER_WRITE, BulkheadConfig.ofDefaults()));
+        underTest = new CustomerService(customerStore, customerStats, customerEmailFilter, customerCache,
+                circuitBreakerRegistry, bulkheadRegistry,
+                new StaticListableBeanFactory().getBeanProvider(PlatformTransactionManager.class), Duration.ofSeconds(5));
     }
 
     @Test
@@ -40,7 +72,7 @@ class CustomerServiceTest {
         underTest.getCustomers();
 
         //then
-        verify(customerRepository).findAll();
+        verify(customerStore).findAllResponses();
     }
 
     @Test
@@ -48,15 +80,63 @@ class CustomerServiceTest {
         //given
         Long id = 1L;
 
-        Customer foundCustomer = Customer.create(id, "Alice", "alice@gmail.com", "US");
+        CustomerResponse foundCustomer = new CustomerResponse(id, "Alice", "alice@gmail.com", "US");
 
-        when(customerRepository.findById(id)).thenReturn(Optional.of(foundCustomer));
+        when(customerStore.findResponseById(id)).thenReturn(Optional.of(foundCustomer));
 
         //when
-        Customer result = underTest.getCustomerById(id);
+        ReadResult<CustomerResponse> result = underTest.getCustomerById(id);
 
         //then
-        assertThat(result).isNotNull();
+        assertThat(result.value()).isEqualTo(foundCustomer);
+        assertThat(result.stale()).isFalse();
+        verify(customerCache).put(foundCustomer);
+    }
+
+    @Test
+    void TestThat_getCustomers_ShouldServeTenant_WhenAnotherTenantsCircuitIsOpen() {
+        //given
+        circuitBreakerRegistry.circuitBreaker(CustomerService.CUSTOMER_DATABASE + "-acme",
+                CustomerService.CUSTOMER_DATABASE).transitionToOpenState();
+        when(customerStore.findAllResponses()).thenReturn(List.of());
+
+        //when
+        ReadResult<List<CustomerResponse>> result = underTest.getCustomers();
+
+        //then
+        assertThat(result.stale()).isFalse();
+        TenantContext.runAs("acme", () -> assertThatThrownBy(underTest::getCustomers)
+                .isInstanceOf(CallNotPermittedException.class));
+        verify(customerStore).findAllResponses();
+    }
+
+    @Test
+    void TestThat_getCustomerById_ShouldServeCachedCustomer_WhenDatabaseIsUnavailable() {
+        //given
+        Long id = 1L;
+        CustomerResponse cached = new CustomerResponse(id, "Alice", "alice@gmail.com", "US");
+        when(customerStore.findResponseById(id)).thenThrow(new CannotCreateTransactionException("pool timed out"));
+        when(customerCache.get(id)).thenReturn(Optional.of(cached));
+
+        //when
+        ReadResult<CustomerResponse> result = underTest.getCustomerById(id);
+
+        //then
+        assertThat(result.value()).isEqualTo(cached);
+        assertThat(result.stale()).isTrue();
+    }
+
+    @Test
+    void TestThat_getCustomerById_ShouldRethrowProgrammingErrors_InsteadOfServingCachedCustomer() {
+        //given
+        Long id = 1L;
+        IllegalStateException bug = new IllegalStateException("mapping failed");
+        when(customerStore.findResponseById(id)).thenThrow(bug);
+
+        //when
+        //then
+        assertThatThrownBy(() -> underTest.getCustomerById(id)).isSameAs(bug);
+        verify(customerCache, never()).get(id);
     }
 
     @Test
@@ -64,7 +144,7 @@ class CustomerServiceTest {
         //given
         Long id = 1L;
 
-        when(customerRepository.findById(id)).thenReturn(Optional.empty());
+        when(customerStore.findResponseById(id)).thenReturn(Optional.empty());
 
         //when
         //then
@@ -86,7 +166,7 @@ class CustomerServiceTest {
         underTest.createCustomer(createCustomerRequest);
 
         //then
-        verify(customerRepository).save(customerArgumentCaptor.capture());
+        verify(customerStore).save(customerArgumentCaptor.capture());
         Customer result = customerArgumentCaptor.getValue();
 
         assertThat(result.getName()).isEqualTo(createCustomerRequest.name());
@@ -103,7 +183,9 @@ class CustomerServiceTest {
                 "US"
         );
 
-        when(customerRepository.findByEmail(anyString())).thenReturn(Optional.of(new Customer()));
+        when(customerEmailFilter.mightContain(anyString())).thenReturn(true);
+
+        when(customerStore.existsByEmail(anyString())).thenReturn(true);
 
         //when
         //then
@@ -113,6 +195,86 @@ class CustomerServiceTest {
 
     }
 
+    @Test
+    void TestThat_createCustomer_ShouldStoreNormalizedEmail() {
+        //given
+        CreateCustomerRequest createCustomerRequest = new CreateCustomerRequest(
+                "Alice",
+                " Alice@Gmail.com ",
+                "US"
+        );
+
+        when(customerEmailFilter.mightContain("alice@gmail.com")).thenReturn(true);
+
+        //when
+        underTest.createCustomer(createCustomerRequest);
+
+        //then
+        verify(customerStore).existsByEmail("alice@gmail.com");
+        verify(customerStore).save(customerArgumentCaptor.capture());
+        assertThat(customerArgumentCaptor.getValue().getEmail()).isEqualTo("alice@gmail.com");
+        verify(customerEmailFilter).add("alice@gmail.com");
+    }
+
+    @Test
+    void TestThat_createCustomer_ShouldNotQueryEmail_WhenFilterSaysEmailIsFree() {
+        //given
+        CreateCustomerRequest createCustomerRequest = new CreateCustomerRequest(
+                "Alice",
+                "alice@gmail.com",
+                "US"
+        );
+
+        when(customerEmailFilter.mightContain(anyString())).thenReturn(false);
+
+        //when
+        underTest.createCustomer(createCustomerRequest);
+
+        //then
+        verify(customerStore, never()).existsByEmail(anyString());
+        verify(customerStore).save(any());
+    }
+
+    @Test
+    void TestThat_createCustomer_ShouldThrowCustomerEmailUnavailableException_WhenUniqueIndexRejectsEmail() {
+        //given
+        CreateCustomerRequest createCustomerRequest = new CreateCustomerRequest(
+                "Alice",
+                "alice@gmail.com",
+                "US"
+        );
+
+        when(customerStore.save(any())).thenThrow(new DuplicateKeyException("duplicate key"));
+
+        //when
+        //then
+        assertThatThrownBy(() -> underTest.createCustomer(createCustomerRequest))
+                .isInstanceOf(CustomerEmailUnavailableException.class)
+                .hasMessageContaining("The email " + createCustomerRequest.email() + " unavailable.");
+
+        verify(customerEmailFilter, never()).add(anyString());
+        verify(customerStats, never()).recordCreated(anyString(), anyString());
+    }
+
+    @Test
+    void TestThat_createCustomer_ShouldRethrowOtherIntegrityViolations() {
+        //given
+        CreateCustomerRequest createCustomerRequest = new CreateCustomerRequest(
+                "A".repeat(256),
+                "alice@gmail.com",
+                "US"
+        );
+        DataIntegrityViolationException violation = new DataIntegrityViolationException("value too long");
+
+        when(customerStore.save(any())).thenThrow(violation);
+
+        //when
+        //then
+        assertThatThrownBy(() -> underTest.createCustomer(createCustomerRequest))
+                .isSameAs(violation);
+        verify(customerEmailFilter, never()).add(anyString());
+    }
+
     @Test
     void TestThat_updateCustomer_ShouldThrowCustomerNotFoundException_WhenCustomerIdDoesNotFound() {
         //given
@@ -121,7 +283,7 @@ class CustomerServiceTest {
         String email = "alice@gmail.com";
         String address = "US";
 
-        when(customerRepository.findById(id))
+        when(customerStore.findById(id))
                 .thenReturn(Optional.empty());
 
         //when
@@ -130,7 +292,7 @@ class CustomerServiceTest {
                 .isInstanceOf(CustomerNotFoundException.class)
                 .hasMessageContaining("Customer with id " + id + " doesn't found");
 
-        verify(customerRepository, never()).save(any());
+        verify(customerStore, never()).save(any());
     }
 
     @Test
@@ -143,14 +305,14 @@ class CustomerServiceTest {
 
         Customer expected = Customer.create(id, newName, "alice@gmail.com", "US");
 
-        when(customerRepository.findById(id))
+        when(customerStore.findById(id))
                 .thenReturn(Optional.of(foundCustomer));
 
         //when
         underTest.updateCustomer(id, newName, null, null);
 
         //then
-        verify(customerRepository).save(customerArgumentCaptor.capture());
+        verify(customerStore).save(customerArgumentCaptor.capture());
         Customer result = customerArgumentCaptor.getValue();
 
         assertThat(result.getName()).isEqualTo(newName);
@@ -167,11 +329,14 @@ class CustomerServiceTest {
 
         Customer foundCustomer = Customer.create(id, "Alice", "alice@gmail.com", "US");
 
-        when(customerRepository.findById(id))
+        when(customerStore.findById(id))
                 .thenReturn(Optional.of(foundCustomer));
 
-        when(customerRepository.findByEmail(anyString()))
-                .thenReturn(Optional.of(new Customer()));
+        when(customerEmailFilter.mightContain(anyString()))
+                .thenReturn(true);
+
+        when(customerStore.existsByEmail(anyString()))
+                .thenReturn(true);
 
         //when
         //then
@@ -179,7 +344,66 @@ class CustomerServiceTest {
                 .isInstanceOf(CustomerEmailUnavailableException.class)
                 .hasMessageContaining("The email \"" + newEmail + "\" unavailable to update");
 
-        verify(customerRepository, never()).save(any());
+        verify(customerStore, never()).save(any());
+    }
+
+    @Test
+    void TestThat_updateCustomer_ShouldNotReportEmailUnavailable_WhenEmailIsUnchanged() {
+        //given
+        Long id = 1L;
+        Customer foundCustomer = Customer.create(id, "Alice", "alice@gmail.com", "US");
+        DataIntegrityViolationException violation = new DataIntegrityViolationException("name too long");
+
+        when(customerStore.findById(id))
+                .thenReturn(Optional.of(foundCustomer));
+
+        when(customerStore.save(foundCustomer))
+                .thenThrow(violation);
+
+        //when
+        //then
+        assertThatThrownBy(() -> underTest.updateCustomer(id, "Alice Trump", " ALICE@gmail.com ", null))
+                .isSameAs(violation);
+
+        verify(customerStore, never()).existsByEmail(anyString());
+    }
+
+    @Test
+    void TestThat_updateCustomer_ShouldRethrowOtherIntegrityViolations_WhenEmailChanges() {
+        //given
+        Long id = 1L;
+        Customer foundCustomer = Customer.create(id, "Alice", "alice@gmail.com", "US");
+        DataIntegrityViolationException violation = new DataIntegrityViolationException("address too long");
+
+        when(customerStore.findById(id))
+                .thenReturn(Optional.of(foundCustomer));
+
+        when(customerStore.save(foundCustomer))
+                .thenThrow(violation);
+
+        //when
+        //then
+        assertThatThrownBy(() -> underTest.updateCustomer(id, null, "alicetrump@gmail.com", "A".repeat(256)))
+                .isSameAs(violation);
+    }
+
+    @Test
+    void TestThat_updateCustomer_ShouldNotReportEmailUnavailable_WhenEmailIsNotGiven() {
+        //given
+        Long id = 1L;
+        Customer foundCustomer = Customer.create(id, "Alice", "alice@gmail.com", "US");
+        DataIntegrityViolationException violation = new DataIntegrityViolationException("address too long");
+
+        when(customerStore.findById(id))
+                .thenReturn(Optional.of(foundCustomer));
+
+        when(customerStore.save(foundCustomer))
+                .thenThrow(violation);
+
+        //when
+        //then
+        assertThatThrownBy(() -> underTest.updateCustomer(id, null, null, "UK"))
+                .isSameAs(violation);
     }
 
     @Test
@@ -192,17 +416,20 @@ class CustomerServiceTest {
 
         Customer expected = Customer.create(id, "Alice", newEmail, "US");
 
-        when(customerRepository.findById(id))
+        when(customerStore.findById(id))
                 .thenReturn(Optional.of(foundCustomer));
 
-        when(customerRepository.findByEmail(anyString()))
-                .thenReturn(Optional.empty());
+        when(customerEmailFilter.mightContain(anyString()))
+                .thenReturn(true);
+
+        when(customerStore.existsByEmail(anyString()))
+                .thenReturn(false);
 
         //when
         underTest.updateCustomer(id, null, newEmail, null);
 
         //then
-        verify(customerRepository).save(customerArgumentCaptor.capture());
+        verify(customerStore).save(customerArgumentCaptor.capture());
         Customer result = customerArgumentCaptor.getValue();
 
         assertThat(result.getEmail()).isEqualTo(expected.getEmail());
@@ -222,14 +449,14 @@ class CustomerServiceTest {
 
         Customer expected = Customer.create(id, "Alice", "alice@gmail.com", newAddress);
 
-        when(customerRepository.findById(id))
+        when(customerStore.findById(id))
                 .thenReturn(Optional.of(foundCustomer));
 
         //when
         underTest.updateCustomer(id, null, null, newAddress);
 
         //then
-        verify(customerRepository).save(customerArgumentCaptor.capture());
+        verify(customerStore).save(customerArgumentCaptor.capture());
         Customer result = customerArgumentCaptor.getValue();
 
         assertThat(result.getAddress()).isEqualTo(expected.getAddress());
@@ -251,17 +478,20 @@ class CustomerServiceTest {
 
         Customer expected = Customer.create(id, newName, newEmail, newAddress);
 
-        when(customerRepository.findById(id))
+        when(customerStore.findById(id))
                 .thenReturn(Optional.of(foundCustomer));
 
-        when(customerRepository.findByEmail(anyString()))
-                .thenReturn(Optional.empty());
+        when(customerEmailFilter.mightContain(anyString()))
+                .thenReturn(true);
+
+        when(customerStore.existsByEmail(anyString()))
+                .thenReturn(false);
 
         //when
         underTest.updateCustomer(id, newName, newEmail, newAddress);
 
         //then
-        verify(customerRepository).save(customerArgumentCaptor.capture());
+        verify(customerStore).save(customerArgumentCaptor.capture());
         Customer result = customerArgumentCaptor.getValue();
 
         assertThat(result.getName()).isEqualTo(expected.getName());
@@ -274,15 +504,13 @@ class CustomerServiceTest {
         //given
         Long id = 1L;
 
-        when(customerRepository.existsById(id)).thenReturn(false);
+        when(customerStore.softDeleteById(id)).thenReturn(Optional.empty());
 
         //when
         //then
         assertThatThrownBy(() -> underTest.deleteCustomer(id))
                 .isInstanceOf(CustomerNotFoundException.class)
                 .hasMessageContaining("Customer with id " + id + " doesn't exist.");
-
-        verify(customerRepository, never()).deleteById(anyLong());
     }
 
     @Test
@@ -290,12 +518,13 @@ class CustomerServiceTest {
         //given
         Long id = 1L;
 
-        when(customerRepository.existsById(id)).thenReturn(true);
+        when(customerStore.softDeleteById(id)).thenReturn(Optional.of(new DeletedCustomer("alice@gmail.com", "US")));
 
         //when
         underTest.deleteCustomer(id);
 
         //then
-        verify(customerRepository).deleteById(id);
+        verify(customerStore).softDeleteById(id);
+        verify(customerStats).recordDeleted("alice@gmail.com", "US");
     }
 }
\ No newline at end of file
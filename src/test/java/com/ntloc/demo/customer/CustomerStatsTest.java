@@ -0,0 +1,141 @@
+package com.ntloc.demo.customer;
+
+import com.ntloc.demo.tenant.TenancyProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerStatsTest {
+
+    private CustomerStats underTest;
+
+    @Mock
+    private CustomerStore customerStore;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerStats(customerStore, new TenancyProperties());
+    }
+
+    @Test
+    void TestThat_recordCreated_ShouldCountCustomerByDomainAndRegion() {
+        //given
+        //when
+        underTest.recordCreated("alice@Gmail.com", "US");
+        underTest.recordCreated("bob@gmail.com", "UK");
+
+        //then
+        CustomerStatsResponse result = underTest.getStats();
+        assertThat(result.total()).isEqualTo(2);
+        assertThat(result.byDomain()).isEqualTo(Map.of("gmail.com", 2L));
+        assertThat(result.byRegion()).isEqualTo(Map.of("US", 1L, "UK", 1L));
+        verifyNoInteractions(customerStore);
+    }
+
+    @Test
+    void TestThat_recordUpdated_ShouldMoveCustomerBetweenDomainsAndRegions() {
+        //given
+        underTest.recordCreated("alice@gmail.com", "US");
+
+        //when
+        underTest.recordUpdated("alice@gmail.com", "US", "alice@yahoo.com", "UK");
+
+        //then
+        CustomerStatsResponse result = underTest.getStats();
+        assertThat(result.total()).isEqualTo(1);
+        assertThat(result.byDomain()).isEqualTo(Map.of("yahoo.com", 1L));
+        assertThat(result.byRegion()).isEqualTo(Map.of("UK", 1L));
+    }
+
+    @Test
+    void TestThat_recordDeleted_ShouldDecrementTotalDomainAndRegion() {
+        //given
+        underTest.recordCreated("alice@gmail.com", "US");
+        underTest.recordCreated("bob@yahoo.com", "US");
+
+        //when
+        underTest.recordDeleted("alice@gmail.com", "US");
+
+        //then
+        CustomerStatsResponse result = underTest.getStats();
+        assertThat(result.total()).isEqualTo(1);
+        assertThat(result.byDomain()).isEqualTo(Map.of("yahoo.com", 1L));
+        assertThat(result.byRegion()).isEqualTo(Map.of("US", 1L));
+    }
+
+    @Test
+    void TestThat_reconcile_ShouldCorrectCountersToDatabaseAggregates() {
+        //given
+        underTest.recordCreated("alice@gmail.com", "US");
+        when(customerStore.count()).thenReturn(3L);
+        when(customerStore.countByEmailDomain()).thenReturn(List.of(
+                new CustomerCount("gmail.com", 2), new CustomerCount(null, 1)));
+        when(customerStore.countByAddress()).thenReturn(List.of(new CustomerCount("VN", 3)));
+
+        //when
+        underTest.reconcile();
+
+        //then
+        CustomerStatsResponse result = underTest.getStats();
+        assertThat(result.total()).isEqualTo(3);
+        assertThat(result.byDomain()).isEqualTo(Map.of("gmail.com", 2L, CustomerStats.UNKNOWN, 1L));
+        assertThat(result.byRegion()).isEqualTo(Map.of("VN", 3L));
+        assertThat(result.reconciledAt()).isNotNull();
+    }
+
+    @Test
+    void TestThat_reconcile_ShouldKeepWritesRecordedWhileAggregating() {
+        //given
+        when(customerStore.count()).thenReturn(3L);
+        when(customerStore.countByEmailDomain()).thenReturn(List.of(new CustomerCount("gmail.com", 3)));
+        when(customerStore.countByAddress()).thenAnswer(invocation -> {
+            underTest.recordCreated("bob@yahoo.com", "UK");
+            return List.of(new CustomerCount("VN", 3));
+        });
+
+        //when
+        underTest.reconcile();
+
+        //then
+        CustomerStatsResponse result = underTest.getStats();
+        assertThat(result.total()).isEqualTo(4);
+        assertThat(result.byDomain()).isEqualTo(Map.of("gmail.com", 3L, "yahoo.com", 1L));
+        assertThat(result.byRegion()).isEqualTo(Map.of("VN", 3L, "UK", 1L));
+    }
+
+    @Test
+    void TestThat_reconcile_ShouldKeepCountersAndRetry_WhenAggregateFails() {
+        //given
+        underTest.recordCreated("alice@gmail.com", "US");
+        when(customerStore.count())
+                .thenThrow(new QueryTimeoutException("canceling statement due to statement timeout"))
+                .thenReturn(2L);
+        when(customerStore.countByEmailDomain()).thenReturn(List.of(new CustomerCount("gmail.com", 2)));
+        when(customerStore.countByAddress()).thenReturn(List.of(new CustomerCount("US", 2)));
+
+        //when
+        underTest.reconcile();
+        CustomerStatsResponse afterFailure = underTest.getStats();
+        underTest.retryFailed();
+        underTest.retryFailed();
+
+        //then
+        assertThat(afterFailure.total()).isEqualTo(1);
+        assertThat(afterFailure.reconciledAt()).isNull();
+        CustomerStatsResponse result = underTest.getStats();
+        assertThat(result.total()).isEqualTo(2);
+        assertThat(result.byDomain()).isEqualTo(Map.of("gmail.com", 2L));
+        assertThat(result.reconciledAt()).isNotNull();
+        verify(customerStore, times(2)).count();
+    }
+}
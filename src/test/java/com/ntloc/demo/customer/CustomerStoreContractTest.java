@@ -0,0 +1,226 @@
+package com.ntloc.demo.customer;
+
+import com.ntloc.demo.exception.EmailConflictPredicate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Behaviour every {@link CustomerStore} backend must share. Subclasses supply
+ * a store that is empty when {@link #store()} is called.
+ */
+public abstract class CustomerStoreContractTest {
+
+    protected CustomerStore underTest;
+
+    protected Customer alice;
+
+    protected abstract CustomerStore store();
+
+    /**
+     * Runs a read the way the service layer does. Backends whose streams hold
+     * a database cursor open run it in a read-only transaction.
+     */
+    protected <T> T read(Supplier<T> read) {
+        return read.get();
+    }
+
+    @BeforeEach
+    void setUpStore() {
+        underTest = store();
+        alice = underTest.save(Customer.create("Alice", "alice@gmail.com", "US"));
+    }
+
+    @Test
+    void TestThat_save_AssignsId_WhenCustomerIsNew() {
+        //given
+        Customer bob = Customer.create("Bob", "bob@yahoo.com", "UK");
+
+        //when
+        Customer result = underTest.save(bob);
+
+        //then
+        assertThat(result.getId()).isNotNull().isNotEqualTo(alice.getId());
+        assertThat(underTest.findById(result.getId())).get()
+                .extracting(Customer::getEmail).isEqualTo("bob@yahoo.com");
+    }
+
+    @Test
+    void TestThat_existsByEmail_ReturnsTrue_WhenEmailExists() {
+        //given
+        String email = "alice@gmail.com";
+
+        //when
+        boolean result = underTest.existsByEmail(email);
+
+        //then
+        assertThat(result).isTrue();
+    }
+
+    @Test
+    void TestThat_existsByEmail_ReturnsFalse_WhenEmailDoesNotExist() {
+        //given
+        String email = "alex@gmail.com";
+
+        //when
+        boolean result = underTest.existsByEmail(email);
+
+        //then
+        assertThat(result).isFalse();
+    }
+
+    @Test
+    void TestThat_findResponseById_ReturnsProjectedCustomer() {
+        //given
+        Long id = alice.getId();
+
+        //when
+        Optional<CustomerResponse> result = underTest.findResponseById(id);
+
+        //then
+        assertThat(result).contains(new CustomerResponse(id, "Alice", "alice@gmail.com", "US"));
+    }
+
+    @Test
+    void TestThat_findAllResponses_ReturnsEveryCustomer() {
+        //given
+        Customer bob = underTest.save(Customer.create("Bob", "bob@yahoo.com", "UK"));
+
+        //when
+        List<CustomerResponse> result = underTest.findAllResponses();
+
+        //then
+        assertThat(result).containsExactlyInAnyOrder(
+                new CustomerResponse(alice.getId(), "Alice", "alice@gmail.com", "US"),
+                new CustomerResponse(bob.getId(), "Bob", "bob@yahoo.com", "UK"));
+    }
+
+    @Test
+    void TestThat_save_ShouldThrowDataIntegrityViolationException_WhenEmailDiffersOnlyInCase() {
+        //given
+        Customer customer = Customer.create("Alice", "ALICE@gmail.com", "UK");
+
+        //when
+        //then
+        assertThatThrownBy(() -> underTest.save(customer))
+                .isInstanceOf(DataIntegrityViolationException.class)
+                .matches(new EmailConflictPredicate());
+    }
+
+    @Test
+    void TestThat_save_ShouldUpdateEmailLookups_WhenEmailChanges() {
+        //given
+        Customer customer = underTest.findById(alice.getId()).orElseThrow();
+        customer.setEmail("alicetrump@gmail.com");
+
+        //when
+        underTest.save(customer);
+
+        //then
+        assertThat(underTest.existsByEmail("alice@gmail.com")).isFalse();
+        assertThat(underTest.existsByEmail("alicetrump@gmail.com")).isTrue();
+    }
+
+    @Test
+    void TestThat_softDeleteById_HidesCustomerFromReads() {
+        //given
+        Long id = alice.getId();
+
+        //when
+        Optional<DeletedCustomer> result = underTest.softDeleteById(id);
+
+        //then
+        assertThat(result).contains(new DeletedCustomer("alice@gmail.com", "US"));
+        assertThat(underTest.findById(id)).isNotPresent();
+        assertThat(underTest.findResponseById(id)).isNotPresent();
+        assertThat(underTest.findAllResponses()).isEmpty();
+        assertThat(underTest.existsByEmail("alice@gmail.com")).isFalse();
+        assertThat(underTest.count()).isZero();
+    }
+
+    @Test
+    void TestThat_softDeleteById_ReturnsEmpty_WhenCustomerIsAlreadyDeleted() {
+        //given
+        Long id = alice.getId();
+        underTest.softDeleteById(id);
+
+        //when
+        Optional<DeletedCustomer> result = underTest.softDeleteById(id);
+
+        //then
+        assertThat(result).isEmpty();
+    }
+
+    @Test
+    void TestThat_softDeleteById_ReleasesEmail() {
+        //given
+        underTest.softDeleteById(alice.getId());
+
+        //when
+        Customer result = underTest.save(Customer.create("Alice", "alice@gmail.com", "UK"));
+
+        //then
+        assertThat(result.getId()).isNotEqualTo(alice.getId());
+        assertThat(underTest.existsByEmail("alice@gmail.com")).isTrue();
+    }
+
+    @Test
+    void TestThat_counts_GroupCustomersByEmailDomainAndAddress() {
+        //given
+        underTest.save(Customer.create("Bob", "bob@GMAIL.com", " UK "));
+        underTest.save(Customer.create("Carol", "carol@yahoo.com", "UK"));
+
+        //when
+        long total = underTest.count();
+        List<CustomerCount> byDomain = underTest.countByEmailDomain();
+        List<CustomerCount> byAddress = underTest.countByAddress();
+
+        //then
+        assertThat(total).isEqualTo(3);
+        assertThat(byDomain).containsExactlyInAnyOrder(
+                new CustomerCount("gmail.com", 2), new CustomerCount("yahoo.com", 1));
+        assertThat(byAddress).containsExactlyInAnyOrder(
+                new CustomerCount("US", 1), new CustomerCount("UK", 2));
+    }
+
+    @Test
+    void TestThat_streamEmailHashes_ReturnsHashOfEveryEmail() {
+        //given
+        underTest.save(Customer.create("Bob", "bob@yahoo.com", "UK"));
+
+        //when
+        List<Long> result = read(() -> {
+            try (Stream<Long> hashes = underTest.streamEmailHashes()) {
+                return hashes.toList();
+            }
+        });
+
+        //then
+        assertThat(result).containsExactlyInAnyOrder(
+                CustomerEmail.hash("alice@gmail.com"), CustomerEmail.hash("bob@yahoo.com"));
+    }
+
+    @Test
+    void TestThat_purgeDeleted_NeverRemovesLiveCustomers() {
+        //given
+        Customer bob = underTest.save(Customer.create("Bob", "bob@yahoo.com", "UK"));
+        underTest.softDeleteById(bob.getId());
+
+        //when
+        underTest.purgeDeleted(Instant.now().plus(1, ChronoUnit.DAYS), 100);
+
+        //then
+        assertThat(underTest.findAllResponses())
+                .containsExactly(new CustomerResponse(alice.getId(), "Alice", "alice@gmail.com", "US"));
+    }
+}
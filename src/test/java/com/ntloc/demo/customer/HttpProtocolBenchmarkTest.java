@@ -0,0 +1,209 @@
+package com.ntloc.demo.customer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the server-side cost of HTTP/1.1 and HTTP/2 (h2c) for small
+ * single-customer responses and for list responses. Each run keeps a fixed
+ * number of requests in flight: HTTP/1.1 needs one connection per in-flight
+ * request, HTTP/2 multiplexes them over one connection.
+ * <p>
+ * The client runs in the same JVM and its HTTP/1.1 and HTTP/2 stacks differ
+ * in cost, so client-observed throughput says more about the client than
+ * about the protocol. The comparison is therefore made on the CPU time of
+ * Tomcat's connector threads per request, which covers parsing, framing and
+ * connection handling on the server and nothing of the client. Cases are
+ * interleaved round by round, each warming up first, and the cheapest round
+ * of each is kept. Runs on the embedded store so the database does not
+ * dominate.
+ */
+@Slf4j
+@Tag("benchmark")
+@ActiveProfiles("embedded")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "management.observations.enable.customer=false",
+        "management.tracing.enabled=false"})
+class HttpProtocolBenchmarkTest {
+
+    private static final int CONCURRENCY = Integer.getInteger("benchmark.concurrency", 64);
+    private static final long WARMUP_SECONDS = Long.getLong("benchmark.warmup-seconds", 2);
+    private static final long DURATION_SECONDS = Long.getLong("benchmark.duration-seconds", 3);
+    private static final int ROUNDS = Integer.getInteger("benchmark.rounds", 3);
+    private static final int CUSTOMERS = Integer.getInteger("benchmark.customers", 50);
+    private static final double MAX_HTTP2_TO_HTTP1_CPU_RATIO = 1.5;
+
+    private final String BASED_URL = "/api/v1/customers";
+
+    @TempDir
+    static Path directory;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("customer.embedded.directory", () -> directory.toString());
+        registry.add("customer.embedded.expected-size", () -> CUSTOMERS);
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private CustomerStore customerStore;
+
+    @BeforeEach
+    void setUp() {
+        for (long i = customerStore.count(); i < CUSTOMERS; i++) {
+            customerStore.save(Customer.create("Alice", "alice" + i + "@gmail.com", "US"));
+        }
+    }
+
+    @Test
+    void TestThat_http2_CostsTheServerNoMoreThanHttp1_ForSingleCustomerAndListResponses() throws Exception {
+        //given
+        Supplier<URI> singleCustomer = () ->
+                uri(BASED_URL + "/" + ThreadLocalRandom.current().nextInt(1, CUSTOMERS + 1));
+        Supplier<URI> customerList = () -> uri(BASED_URL);
+        HttpClient http1 = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        HttpClient http2 = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build();
+
+        Map<String, Case> cases = new LinkedHashMap<>();
+        cases.put("HTTP/1.1 single", new Case(http1, singleCustomer));
+        cases.put("HTTP/2 single", new Case(http2, singleCustomer));
+        cases.put("HTTP/1.1 list", new Case(http1, customerList));
+        cases.put("HTTP/2 list", new Case(http2, customerList));
+
+        //when
+        Map<String, Result> best = new LinkedHashMap<>();
+        for (int round = 0; round < ROUNDS; round++) {
+            for (Map.Entry<String, Case> entry : cases.entrySet()) {
+                Result result = measure(entry.getValue().httpClient(), entry.getValue().uri());
+                assertThat(result.errors()).as(entry.getKey()).isZero();
+                best.merge(entry.getKey(), result, (a, b) ->
+                        a.serverCpuMicrosPerRequest() <= b.serverCpuMicrosPerRequest() ? a : b);
+            }
+        }
+
+        //then
+        best.forEach((name, result) -> log.info("{} with {} in flight, best of {} rounds: {}",
+                name, CONCURRENCY, ROUNDS, result));
+        assertThat(negotiatedVersion(http1, customerList)).isEqualTo(HttpClient.Version.HTTP_1_1);
+        assertThat(negotiatedVersion(http2, customerList)).isEqualTo(HttpClient.Version.HTTP_2);
+        assertThat(best.get("HTTP/2 single").serverCpuMicrosPerRequest())
+                .isLessThan(best.get("HTTP/1.1 single").serverCpuMicrosPerRequest() * MAX_HTTP2_TO_HTTP1_CPU_RATIO);
+        assertThat(best.get("HTTP/2 list").serverCpuMicrosPerRequest())
+                .isLessThan(best.get("HTTP/1.1 list").serverCpuMicrosPerRequest() * MAX_HTTP2_TO_HTTP1_CPU_RATIO);
+    }
+
+    private HttpClient.Version negotiatedVersion(HttpClient httpClient, Supplier<URI> uri) throws Exception {
+        return httpClient.send(HttpRequest.newBuilder(uri.get()).build(), HttpResponse.BodyHandlers.discarding())
+                .version();
+    }
+
+    /**
+     * Warms up, which also opens the client's connections, then measures.
+     */
+    private Result measure(HttpClient httpClient, Supplier<URI> uri) throws InterruptedException {
+        run(httpClient, uri, WARMUP_SECONDS, new ConcurrentHistogram(TimeUnit.SECONDS.toNanos(10), 3));
+        Histogram latencies = new ConcurrentHistogram(TimeUnit.SECONDS.toNanos(10), 3);
+        Map<Long, Long> cpuBefore = serverThreadCpuNanos();
+        long start = System.nanoTime();
+        long errors = run(httpClient, uri, DURATION_SECONDS, latencies);
+        long elapsedNanos = System.nanoTime() - start;
+        long serverCpuNanos = 0;
+        for (Map.Entry<Long, Long> thread : serverThreadCpuNanos().entrySet()) {
+            serverCpuNanos += thread.getValue() - cpuBefore.getOrDefault(thread.getKey(), 0L);
+        }
+        return new Result(latencies, errors, elapsedNanos, serverCpuNanos);
+    }
+
+    private long run(HttpClient httpClient, Supplier<URI> uri, long seconds, Histogram latencies)
+            throws InterruptedException {
+        LongAdder errors = new LongAdder();
+        Semaphore inFlight = new Semaphore(CONCURRENCY);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        while (System.nanoTime() < deadline) {
+            inFlight.acquire();
+            long sent = System.nanoTime();
+            httpClient.sendAsync(HttpRequest.newBuilder(uri.get()).timeout(Duration.ofSeconds(10)).build(),
+                            HttpResponse.BodyHandlers.ofByteArray())
+                    .whenComplete((response, error) -> {
+                        latencies.recordValue(Math.min(System.nanoTime() - sent, latencies.getHighestTrackableValue()));
+                        if (error != null || response.statusCode() != 200) {
+                            errors.increment();
+                        }
+                        inFlight.release();
+                    });
+        }
+        inFlight.acquire(CONCURRENCY);
+        return errors.sum();
+    }
+
+    /**
+     * CPU time of Tomcat's acceptor, poller and worker threads by thread id.
+     */
+    private Map<Long, Long> serverThreadCpuNanos() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Map<Long, Long> cpuNanos = new HashMap<>();
+        for (ThreadInfo thread : threads.getThreadInfo(threads.getAllThreadIds())) {
+            if (thread != null && thread.getThreadName().startsWith("http-nio-")) {
+                long cpu = threads.getThreadCpuTime(thread.getThreadId());
+                if (cpu >= 0) {
+                    cpuNanos.put(thread.getThreadId(), cpu);
+                }
+            }
+        }
+        return cpuNanos;
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private record Case(HttpClient httpClient, Supplier<URI> uri) {
+    }
+
+    private record Result(Histogram latencies, long errors, long elapsedNanos, long serverCpuNanos) {
+
+        double serverCpuMicrosPerRequest() {
+            return serverCpuNanos / 1_000.0 / latencies.getTotalCount();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,.0f req/s, server CPU %.1f us/req, p50=%.2f ms p99=%.2f ms errors=%d",
+                    latencies.getTotalCount() / (elapsedNanos / 1e9), serverCpuMicrosPerRequest(),
+                    latencies.getValueAtPercentile(50) / 1e6, latencies.getValueAtPercentile(99) / 1e6, errors);
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.ntloc.demo.customer.embedded;
+
+import com.ntloc.demo.customer.CreateCustomerRequest;
+import com.ntloc.demo.customer.CustomerCache;
+import com.ntloc.demo.customer.CustomerEmailFilter;
+import com.ntloc.demo.customer.CustomerResponse;
+import com.ntloc.demo.customer.CustomerService;
+import com.ntloc.demo.customer.CustomerStats;
+import com.ntloc.demo.customer.ReadResult;
+import com.ntloc.demo.exception.CustomerEmailUnavailableException;
+import com.ntloc.demo.exception.CustomerNotFoundException;
+import com.ntloc.demo.tenant.TenancyProperties;
+import com.ntloc.demo.tenant.TenantContext;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The {@code CustomerServiceTest} scenarios run end to end on the embedded
+ * store, with the real filter, cache and stats in place of mocks.
+ */
+class EmbeddedCustomerServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private EmbeddedCustomerStore customerStore;
+
+    private CustomerCache customerCache;
+
+    private CustomerService underTest;
+
+    private Long aliceId;
+
+    @BeforeEach
+    void setUp() {
+        customerStore = new EmbeddedCustomerStore(directory, 16, 4096);
+        TenancyProperties tenancyProperties = new TenancyProperties();
+        CustomerEmailFilter customerEmailFilter = new CustomerEmailFilter(customerStore, tenancyProperties,
+                new StaticListableBeanFactory().getBeanProvider(PlatformTransactionManager.class), 1000, 0.01);
+        customerCache = new CustomerCache(100);
+        underTest = new CustomerService(customerStore, new CustomerStats(customerStore, tenancyProperties),
+                customerEmailFilter, customerCache,
+                CircuitBreakerRegistry.of(Map.of("customerDatabase", CircuitBreakerConfig.ofDefaults())),
+                BulkheadRegistry.of(Map.of(
+                        "customerRead", BulkheadConfig.ofDefaults(),
+                        "customerWrite", BulkheadConfig.ofDefaults())),
+                new StaticListableBeanFactory().getBeanProvider(PlatformTransactionManager.class), Duration.ofSeconds(5));
+        underTest.createCustomer(new CreateCustomerRequest("Alice", "alice@gmail.com", "US"));
+        customerEmailFilter.rebuild();
+        aliceId = customerStore.findAllResponses().get(0).id();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        customerStore.close();
+    }
+
+    @Test
+    void TestThat_getCustomers_ShouldGetAllCustomers() {
+        //given
+        underTest.createCustomer(new CreateCustomerRequest("Bob", "bob@yahoo.com", "UK"));
+
+        //when
+        ReadResult<List<CustomerResponse>> result = underTest.getCustomers();
+
+        //then
+        assertThat(result.stale()).isFalse();
+        assertThat(result.value()).extracting(CustomerResponse::email)
+                .containsExactly("alice@gmail.com", "bob@yahoo.com");
+    }
+
+    @Test
+    void TestThat_getCustomerById_ShouldReturnFoundCustomer() {
+        //given
+        Long id = aliceId;
+
+        //when
+        ReadResult<CustomerResponse> result = underTest.getCustomerById(id);
+
+        //then
+        assertThat(result.value()).isEqualTo(new CustomerResponse(id, "Alice", "alice@gmail.com", "US"));
+        assertThat(result.stale()).isFalse();
+    }
+
+    @Test
+    void TestThat_getCustomerById_ShouldThrowCustomerNotFoundException_WhenCustomerIdDoesNotExist() {
+        //given
+        Long id = aliceId + 1;
+
+        //when
+        //then
+        assertThatThrownBy(() -> underTest.getCustomerById(id))
+                .isInstanceOf(CustomerNotFoundException.class)
+                .hasMessageContaining("Customer with id " + id + " doesn't found");
+    }
+
+    @Test
+    void TestThat_createCustomer_ShouldStoreNormalizedEmail() {
+        //given
+        CreateCustomerRequest createCustomerRequest = new CreateCustomerRequest("Bob", " Bob@Yahoo.com ", "UK");
+
+        //when
+        underTest.createCustomer(createCustomerRequest);
+
+        //then
+        assertThat(customerStore.existsByEmail("bob@yahoo.com")).isTrue();
+        assertThat(underTest.getCustomerStats().total()).isEqualTo(2);
+    }
+
+    @Test
+    void TestThat_createCustomer_ShouldThrowCustomerEmailUnavailableException_WhenEmailIsUnavailable() {
+        //given
+        CreateCustomerRequest createCustomerRequest = new CreateCustomerRequest("Alice", "ALICE@gmail.com", "UK");
+
+        //when
+        //then
+        assertThatThrownBy(() -> underTest.createCustomer(createCustomerRequest))
+                .isInstanceOf(CustomerEmailUnavailableException.class)
+                .hasMessageContaining("The email " + createCustomerRequest.email() + " unavailable.");
+        assertThat(customerStore.count()).isEqualTo(1);
+    }
+
+    @Test
+    void TestThat_updateCustomer_ShouldThrowCustomerNotFoundException_WhenCustomerIdDoesNotFound() {
+        //given
+        Long id = aliceId + 1;
+
+        //when
+        //then
+        assertThatThrownBy(() -> underTest.updateCustomer(id, "alice", "alice@gmail.com", "US"))
+                .isInstanceOf(CustomerNotFoundException.class)
+                .hasMessageContaining("Customer with id " + id + " doesn't found");
+    }
+
+    @Test
+    void TestThat_updateCustomer_ShouldFullUpdateCustomer() {
+        //given
+        Long id = aliceId;
+
+        //when
+        underTest.updateCustomer(id, "Alice Trump", "AliceTrump@gmail.com", "UK");
+
+        //then
+        assertThat(underTest.getCustomerById(id).value())
+                .isEqualTo(new CustomerResponse(id, "Alice Trump", "alicetrump@gmail.com", "UK"));
+        assertThat(customerStore.existsByEmail("alice@gmail.com")).isFalse();
+    }
+
+    @Test
+    void TestThat_updateCustomer_ShouldThrowCustomerEmailUnavailableException_WhenEmailIsUnavailableToUpdate() {
+        //given
+        underTest.createCustomer(new CreateCustomerRequest("Bob", "bob@yahoo.com", "UK"));
+        String newEmail = "bob@yahoo.com";
+
+        //when
+        //then
+        assertThatThrownBy(() -> underTest.updateCustomer(aliceId, null, newEmail, null))
+                .isInstanceOf(CustomerEmailUnavailableException.class)
+                .hasMessageContaining("The email \"" + newEmail + "\" unavailable to update");
+        assertThat(underTest.getCustomerById(aliceId).value().email()).isEqualTo("alice@gmail.com");
+    }
+
+    @Test
+    void TestThat_deleteCustomer_ShouldDeleteCustomer() {
+        //given
+        Long id = aliceId;
+
+        //when
+        underTest.deleteCustomer(id);
+
+        //then
+        assertThatThrownBy(() -> underTest.getCustomerById(id))
+                .isInstanceOf(CustomerNotFoundException.class);
+        assertThat(underTest.getCustomerStats().total()).isZero();
+        assertThat(underTest.getCustomerStats().byDomain()).isEmpty();
+        assertThat(underTest.getCustomerStats().byRegion()).isEmpty();
+    }
+
+    @Test
+    void TestThat_deleteCustomer_ShouldThrowCustomerNotFoundException_WhenCustomerIdDoesNotExit() {
+        //given
+        Long id = aliceId;
+        underTest.deleteCustomer(id);
+
+        //when
+        //then
+        assertThatThrownBy(() -> underTest.deleteCustomer(id))
+                .isInstanceOf(CustomerNotFoundException.class)
+                .hasMessageContaining("Customer with id " + id + " doesn't exist.");
+    }
+
+    @Test
+    void TestThat_createCustomer_ShouldDropCachedCustomerList() {
+        //given
+        underTest.getCustomers();
+
+        //when
+        underTest.createCustomer(new CreateCustomerRequest("Bob", "bob@yahoo.com", "UK"));
+
+        //then
+        assertThat(customerCache.getAll()).isEmpty();
+    }
+
+    @Test
+    void TestThat_updateCustomer_ShouldDropCachedCustomerList() {
+        //given
+        underTest.getCustomers();
+
+        //when
+        underTest.updateCustomer(aliceId, "Alice Trump", null, null);
+
+        //then
+        assertThat(customerCache.getAll()).isEmpty();
+        assertThat(customerCache.get(aliceId)).get()
+                .extracting(CustomerResponse::name).isEqualTo("Alice Trump");
+    }
+
+    @Test
+    void TestThat_deleteCustomer_ShouldDropCachedCustomerList() {
+        //given
+        underTest.getCustomers();
+
+        //when
+        underTest.deleteCustomer(aliceId);
+
+        //then
+        assertThat(customerCache.getAll()).isEmpty();
+        assertThat(customerCache.get(aliceId)).isEmpty();
+    }
+
+    @Test
+    void TestThat_getCustomerById_ShouldKeepCachedCustomer_WhenAnotherTenantFillsItsCache() {
+        //given
+        underTest.getCustomerById(aliceId);
+
+        //when
+        TenantContext.runAs("acme", () -> LongStream.range(0, 1000).forEach(id ->
+                customerCache.put(new CustomerResponse(id, "Bob", "bob" + id + "@yahoo.com", "UK"))));
+
+        //then
+        assertThat(customerCache.get(aliceId)).isPresent();
+    }
+
+    @Test
+    void TestThat_getCustomers_ShouldNotCacheCustomerList_WhenItExceedsCacheSize() {
+        //given
+        List<CustomerResponse> customers = LongStream.range(0, 101)
+                .mapToObj(id -> new CustomerResponse(id, "Bob", "bob" + id + "@yahoo.com", "UK"))
+                .toList();
+
+        //when
+        customerCache.putAll(customers);
+
+        //then
+        assertThat(customerCache.getAll()).isEmpty();
+    }
+}
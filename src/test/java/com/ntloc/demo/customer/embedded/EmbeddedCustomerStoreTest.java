@@ -0,0 +1,89 @@
+package com.ntloc.demo.customer.embedded;
+
+import com.ntloc.demo.customer.Customer;
+import com.ntloc.demo.customer.CustomerStore;
+import com.ntloc.demo.customer.CustomerStoreContractTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmbeddedCustomerStoreTest extends CustomerStoreContractTest {
+
+    @TempDir
+    Path directory;
+
+    private EmbeddedCustomerStore store;
+
+    @Override
+    protected CustomerStore store() {
+        store = open();
+        return store;
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        store.close();
+    }
+
+    @Test
+    void TestThat_reopen_ShouldRecoverCustomers_FromLog() throws IOException {
+        //given
+        Customer bob = store.save(Customer.create("Bob", "bob@gmail.com", "UK"));
+        store.softDeleteById(alice.getId());
+        store.flush();
+
+        //when
+        try (EmbeddedCustomerStore reopened = open()) {
+
+            //then
+            assertThat(reopened.count()).isEqualTo(1);
+            assertThat(reopened.findById(bob.getId())).get()
+                    .extracting(Customer::getEmail).isEqualTo("bob@gmail.com");
+            assertThat(reopened.save(Customer.create("Carol", "carol@gmail.com", "VN")).getId())
+                    .isGreaterThan(bob.getId());
+        }
+    }
+
+    @Test
+    void TestThat_reopen_ShouldRecoverCustomers_FromSnapshotAndLog() throws IOException {
+        //given
+        store.save(Customer.create("Bob", "bob@gmail.com", "UK"));
+        store.snapshot();
+        store.save(Customer.create("Carol", "carol@gmail.com", "VN"));
+        store.flush();
+
+        //when
+        try (EmbeddedCustomerStore reopened = open()) {
+
+            //then
+            assertThat(reopened.count()).isEqualTo(3);
+            assertThat(reopened.existsByEmail("carol@gmail.com")).isTrue();
+        }
+    }
+
+    @Test
+    void TestThat_save_ShouldGrowLog_BeyondOneChunk() throws IOException {
+        //given
+        int customers = 1_000;
+
+        //when
+        for (int i = 0; i < customers; i++) {
+            store.save(Customer.create("Customer " + i, "customer" + i + "@gmail.com", "US"));
+        }
+        store.flush();
+
+        //then
+        try (EmbeddedCustomerStore reopened = open()) {
+            assertThat(reopened.count()).isEqualTo(customers + 1);
+        }
+    }
+
+    private EmbeddedCustomerStore open() {
+        return new EmbeddedCustomerStore(directory, 16, 4096);
+    }
+}
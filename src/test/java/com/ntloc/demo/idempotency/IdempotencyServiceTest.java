@@ -0,0 +1,184 @@
+package com.ntloc.demo.idempotency;
+
+import com.ntloc.demo.exception.CustomerEmailUnavailableException;
+import com.ntloc.demo.exception.IdempotencyKeyReusedException;
+import com.ntloc.demo.tenant.TenantContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+    private IdempotencyService underTest;
+
+    @Mock
+    private IdempotencyStore idempotencyStore;
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        underTest = new IdempotencyService(Optional.empty(), Duration.ofMinutes(1), 100, Duration.ofSeconds(5));
+    }
+
+    @Test
+    void TestThat_execute_ShouldRunActionOnce_WhenRequestIsRetried() {
+        //given
+        String fingerprint = IdempotencyService.fingerprint("Alice", "alice@gmail.com", "US");
+        underTest.execute("key-1", fingerprint, executions::incrementAndGet);
+
+        //when
+        underTest.execute("key-1", fingerprint, executions::incrementAndGet);
+
+        //then
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void TestThat_execute_ShouldReplayCustomerEmailUnavailableException_WhenFirstAttemptWasRejected() {
+        //given
+        String fingerprint = IdempotencyService.fingerprint("Alice", "alice@gmail.com", "US");
+        Runnable rejected = () -> {
+            executions.incrementAndGet();
+            throw new CustomerEmailUnavailableException("The email alice@gmail.com unavailable.");
+        };
+        assertThatThrownBy(() -> underTest.execute("key-1", fingerprint, rejected))
+                .isInstanceOf(CustomerEmailUnavailableException.class);
+
+        //when
+        //then
+        assertThatThrownBy(() -> underTest.execute("key-1", fingerprint, rejected))
+                .isInstanceOf(CustomerEmailUnavailableException.class)
+                .hasMessageContaining("The email alice@gmail.com unavailable.");
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void TestThat_execute_ShouldThrowIdempotencyKeyReusedException_WhenKeyIsReusedForDifferentRequest() {
+        //given
+        underTest.execute("key-1", IdempotencyService.fingerprint("Alice", "alice@gmail.com", "US"),
+                executions::incrementAndGet);
+
+        //when
+        //then
+        assertThatThrownBy(() -> underTest.execute("key-1",
+                IdempotencyService.fingerprint("Bob", "bob@gmail.com", "UK"), executions::incrementAndGet))
+                .isInstanceOf(IdempotencyKeyReusedException.class);
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void TestThat_execute_ShouldRunActionAgain_WhenFirstAttemptFailedUnexpectedly() {
+        //given
+        assertThatThrownBy(() -> underTest.execute("key-1", "fingerprint", () -> {
+            throw new IllegalStateException("database is down");
+        })).isInstanceOf(IllegalStateException.class);
+
+        //when
+        underTest.execute("key-1", "fingerprint", executions::incrementAndGet);
+
+        //then
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void TestThat_execute_ShouldKeepKey_WhenAnotherTenantFillsItsEntries() {
+        //given
+        underTest.execute("key-1", "fingerprint", executions::incrementAndGet);
+
+        //when
+        TenantContext.runAs("acme", () -> IntStream.range(0, 1000).forEach(i ->
+                underTest.execute("acme-key-" + i, "fingerprint", () -> {
+                })));
+        underTest.execute("key-1", "fingerprint", executions::incrementAndGet);
+
+        //then
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void TestThat_execute_ShouldMakeConcurrentDuplicateWaitForFirstRequest() throws Exception {
+        //given
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        //when
+        Future<?> first = executor.submit(() -> underTest.execute("key-1", "fingerprint", () -> {
+            firstStarted.countDown();
+            await(releaseFirst);
+            executions.incrementAndGet();
+        }));
+        firstStarted.await(5, TimeUnit.SECONDS);
+        Future<?> duplicate = executor.submit(() ->
+                underTest.execute("key-1", "fingerprint", executions::incrementAndGet));
+        Thread.sleep(100);
+        assertThat(duplicate.isDone()).isFalse();
+        releaseFirst.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        duplicate.get(5, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        //then
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void TestThat_execute_ShouldReplayFromStore_WithoutRunningAction() {
+        //given
+        underTest = new IdempotencyService(Optional.of(idempotencyStore), Duration.ofMinutes(1), 100,
+                Duration.ofSeconds(5));
+        when(idempotencyStore.find("key-1"))
+                .thenReturn(Optional.of(new IdempotentResponse("fingerprint", 200, null)));
+
+        //when
+        underTest.execute("key-1", "fingerprint", executions::incrementAndGet);
+
+        //then
+        assertThat(executions).hasValue(0);
+        verify(idempotencyStore, never()).save(any(), any(), any());
+    }
+
+    @Test
+    void TestThat_execute_ShouldSaveOutcomeToStore() {
+        //given
+        underTest = new IdempotencyService(Optional.of(idempotencyStore), Duration.ofMinutes(1), 100,
+                Duration.ofSeconds(5));
+        when(idempotencyStore.find("key-1")).thenReturn(Optional.empty());
+
+        //when
+        underTest.execute("key-1", "fingerprint", executions::incrementAndGet);
+
+        //then
+        verify(idempotencyStore).save(eq("key-1"), eq(new IdempotentResponse("fingerprint", 200, null)),
+                any(Instant.class));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
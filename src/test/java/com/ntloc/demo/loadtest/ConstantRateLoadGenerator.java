@@ -0,0 +1,120 @@
+package com.ntloc.demo.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Open-model load generator: requests are sent at a fixed arrival rate no
+ * matter how fast the server answers. Latency is measured from the time a
+ * request was <em>scheduled</em> to be sent, not from when it actually went
+ * out, so a stalled server shows up in the percentiles instead of silently
+ * slowing the generator down (coordinated omission).
+ */
+public class ConstantRateLoadGenerator {
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final HttpClient httpClient;
+    private final double requestsPerSecond;
+    private final Duration duration;
+    private final List<WeightedRequest> mix;
+    private final int totalWeight;
+
+    public ConstantRateLoadGenerator(HttpClient httpClient, double requestsPerSecond, Duration duration,
+                                     List<WeightedRequest> mix) {
+        this.httpClient = httpClient;
+        this.requestsPerSecond = requestsPerSecond;
+        this.duration = duration;
+        this.mix = mix;
+        this.totalWeight = mix.stream().mapToInt(WeightedRequest::weight).sum();
+    }
+
+    public Result run() throws InterruptedException {
+        Map<String, Histogram> latencies = new LinkedHashMap<>();
+        mix.forEach(request -> latencies.put(request.name(), new ConcurrentHistogram(HIGHEST_TRACKABLE_NANOS, 3)));
+        LongAdder errors = new LongAdder();
+
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+        long total = (long) (requestsPerSecond * duration.toSeconds());
+        CountDownLatch completed = new CountDownLatch((int) total);
+        long start = System.nanoTime();
+
+        for (long i = 0; i < total; i++) {
+            long intendedStart = start + i * intervalNanos;
+            long now;
+            while ((now = System.nanoTime()) < intendedStart) {
+                LockSupport.parkNanos(intendedStart - now);
+            }
+            WeightedRequest request = pick();
+            Histogram histogram = latencies.get(request.name());
+            httpClient.sendAsync(request.request().get(), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        histogram.recordValue(Math.min(System.nanoTime() - intendedStart, HIGHEST_TRACKABLE_NANOS));
+                        if (error != null || response.statusCode() >= 500) {
+                            errors.increment();
+                        }
+                        completed.countDown();
+                    });
+        }
+        if (!completed.await(1, TimeUnit.MINUTES)) {
+            errors.add(completed.getCount());
+        }
+        return new Result(latencies, errors.sum(), System.nanoTime() - start);
+    }
+
+    private WeightedRequest pick() {
+        int ticket = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (WeightedRequest request : mix) {
+            ticket -= request.weight();
+            if (ticket < 0) {
+                return request;
+            }
+        }
+        return mix.get(mix.size() - 1);
+    }
+
+    public record WeightedRequest(String name, int weight, Supplier<HttpRequest> request) {
+    }
+
+    public record Result(Map<String, Histogram> latencies, long errors, long elapsedNanos) {
+
+        public Histogram overall() {
+            Histogram overall = new Histogram(HIGHEST_TRACKABLE_NANOS, 3);
+            latencies.values().forEach(overall::add);
+            return overall;
+        }
+
+        public String summary() {
+            StringBuilder summary = new StringBuilder(String.format("%-8s %10s %10s %10s %10s%n",
+                    "request", "count", "p50 ms", "p99 ms", "p999 ms"));
+            latencies.forEach((name, histogram) -> summary.append(line(name, histogram)));
+            summary.append(line("all", overall()));
+            summary.append(String.format("errors: %d, elapsed: %d ms%n", errors,
+                    TimeUnit.NANOSECONDS.toMillis(elapsedNanos)));
+            return summary.toString();
+        }
+
+        private static String line(String name, Histogram histogram) {
+            return String.format("%-8s %10d %10.2f %10.2f %10.2f%n", name, histogram.getTotalCount(),
+                    millis(histogram, 50), millis(histogram, 99), millis(histogram, 99.9));
+        }
+
+        static double millis(Histogram histogram, double percentile) {
+            return histogram.getValueAtPercentile(percentile) / 1_000_000.0;
+        }
+    }
+}
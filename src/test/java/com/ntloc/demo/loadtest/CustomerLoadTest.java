@@ -0,0 +1,122 @@
+package com.ntloc.demo.loadtest;
+
+import com.ntloc.demo.AbstractTestContainersTest;
+import com.ntloc.demo.customer.CustomerDataGenerator;
+import com.ntloc.demo.loadtest.ConstantRateLoadGenerator.WeightedRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives the single-customer /api/v1/customers endpoints at a constant arrival
+ * rate against a seeded database and fails when p99 or p999 latency exceed the
+ * SLO. The unpaged list endpoint is left out: over a million rows it measures
+ * serialization of the whole table rather than the service.
+ * Run with {@code mvn test -Ploadtest}; tune with {@code -Dloadtest.*}.
+ */
+@Slf4j
+@Tag("loadtest")
+@Testcontainers
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class CustomerLoadTest extends AbstractTestContainersTest {
+
+    private static final long CUSTOMERS = Long.getLong("loadtest.customers", 1_000_000);
+    private static final double RATE = Double.parseDouble(System.getProperty("loadtest.rate", "500"));
+    private static final Duration DURATION = Duration.ofSeconds(Long.getLong("loadtest.duration-seconds", 30));
+    private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("loadtest.warmup-seconds", 10));
+    private static final double P99_SLO_MS = Double.parseDouble(System.getProperty("loadtest.p99-ms", "50"));
+    private static final double P999_SLO_MS = Double.parseDouble(System.getProperty("loadtest.p999-ms", "200"));
+
+    private final String BASED_URL = "/api/v1/customers";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long[] idRange;
+
+    @BeforeEach
+    void setUp() {
+        CustomerDataGenerator generator = new CustomerDataGenerator(jdbcTemplate);
+        Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM customer", Long.class);
+        if (count == null || count < CUSTOMERS) {
+            generator.seed(CUSTOMERS);
+        }
+        idRange = generator.idRange();
+    }
+
+    @Test
+    void TestThat_customerApi_MeetsLatencySlo_UnderConstantArrivalRate() throws InterruptedException {
+        //given
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        List<WeightedRequest> mix = List.of(
+                new WeightedRequest("get", 700, () -> get(BASED_URL + "/" + randomId())),
+                new WeightedRequest("create", 150, this::create),
+                new WeightedRequest("update", 100, () -> put(BASED_URL + "/" + randomId() + "?address=UK")),
+                new WeightedRequest("delete", 50, () -> delete(BASED_URL + "/" + randomId()))
+        );
+        new ConstantRateLoadGenerator(httpClient, RATE, WARMUP, mix).run();
+
+        //when
+        ConstantRateLoadGenerator.Result result = new ConstantRateLoadGenerator(httpClient, RATE, DURATION, mix).run();
+
+        //then
+        log.info("{} customers at {} req/s for {}s\n{}", CUSTOMERS, RATE, DURATION.toSeconds(), result.summary());
+        Histogram overall = result.overall();
+        assertThat(result.errors()).isZero();
+        assertThat(ConstantRateLoadGenerator.Result.millis(overall, 99)).isLessThanOrEqualTo(P99_SLO_MS);
+        assertThat(ConstantRateLoadGenerator.Result.millis(overall, 99.9)).isLessThanOrEqualTo(P999_SLO_MS);
+    }
+
+    private long randomId() {
+        return ThreadLocalRandom.current().nextLong(idRange[0], idRange[1] + 1);
+    }
+
+    private HttpRequest create() {
+        String body = """
+                {"name":"Alice","email":"alice%s@gmail.com","address":"US"}""".formatted(UUID.randomUUID());
+        return request(BASED_URL)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private HttpRequest get(String path) {
+        return request(path).GET().build();
+    }
+
+    private HttpRequest put(String path) {
+        return request(path).PUT(HttpRequest.BodyPublishers.noBody()).build();
+    }
+
+    private HttpRequest delete(String path) {
+        return request(path).DELETE().build();
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .timeout(Duration.ofSeconds(30));
+    }
+}
@@ -0,0 +1,121 @@
+package com.ntloc.demo.tenant;
+
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import jakarta.servlet.http.HttpServlet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TenantFilterTest {
+
+    private TenantFilter underTest;
+
+    private TenancyProperties tenancyProperties;
+
+    @BeforeEach
+    void setUp() {
+        tenancyProperties = new TenancyProperties();
+        TenancyProperties.Tenant acme = new TenancyProperties.Tenant();
+        acme.setSchema("acme");
+        acme.setMaxConcurrentRequests(1);
+        tenancyProperties.getTenants().put("acme", acme);
+        underTest = new TenantFilter(tenancyProperties, BulkheadRegistry.ofDefaults());
+    }
+
+    @Test
+    void TestThat_doFilter_ShouldBindRequestToTenantFromHeader() throws Exception {
+        //given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/customers");
+        request.addHeader(tenancyProperties.getHeader(), "acme");
+        AtomicReference<String> tenantInChain = new AtomicReference<>();
+
+        //when
+        underTest.doFilter(request, new MockHttpServletResponse(),
+                new MockFilterChain(new HttpServlet() {
+                }, (req, res, chain) -> tenantInChain.set(TenantContext.getTenantId())));
+
+        //then
+        assertThat(tenantInChain.get()).isEqualTo("acme");
+        assertThat(request.getAttribute(TenantFilter.TENANT_ATTRIBUTE)).isEqualTo("acme");
+        assertThat(TenantContext.getTenantId()).isEqualTo(TenantContext.DEFAULT_TENANT);
+    }
+
+    @Test
+    void TestThat_doFilter_ShouldUseDefaultTenant_WhenHeaderIsMissing() throws Exception {
+        //given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/customers");
+
+        //when
+        underTest.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        //then
+        assertThat(request.getAttribute(TenantFilter.TENANT_ATTRIBUTE)).isEqualTo(TenantContext.DEFAULT_TENANT);
+    }
+
+    @Test
+    void TestThat_doFilter_ShouldRejectUnknownTenant() throws Exception {
+        //given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/customers");
+        request.addHeader(tenancyProperties.getHeader(), "globex");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        //when
+        underTest.doFilter(request, response, chain);
+
+        //then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
+        assertThat(chain.getRequest()).isNull();
+    }
+
+    @Test
+    void TestThat_doFilter_ShouldRejectConfiguredTenant_WhenOnlyDefaultTenantIsServed() throws Exception {
+        //given
+        tenancyProperties.setDefaultTenantOnly(true);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/customers");
+        request.addHeader(tenancyProperties.getHeader(), "acme");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletRequest defaultRequest = new MockHttpServletRequest("GET", "/api/v1/customers");
+
+        //when
+        underTest.doFilter(request, response, chain);
+        underTest.doFilter(defaultRequest, new MockHttpServletResponse(), new MockFilterChain());
+
+        //then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
+        assertThat(chain.getRequest()).isNull();
+        assertThat(defaultRequest.getAttribute(TenantFilter.TENANT_ATTRIBUTE)).isEqualTo(TenantContext.DEFAULT_TENANT);
+    }
+
+    @Test
+    void TestThat_doFilter_ShouldRejectRequest_WhenTenantIsAtItsConcurrencyLimit() throws Exception {
+        //given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/customers");
+        request.addHeader(tenancyProperties.getHeader(), "acme");
+        MockHttpServletRequest nested = new MockHttpServletRequest("GET", "/api/v1/customers");
+        nested.addHeader(tenancyProperties.getHeader(), "acme");
+        MockHttpServletResponse nestedResponse = new MockHttpServletResponse();
+        MockHttpServletResponse defaultResponse = new MockHttpServletResponse();
+
+        //when
+        underTest.doFilter(request, new MockHttpServletResponse(),
+                new MockFilterChain(new HttpServlet() {
+                }, (req, res, chain) -> {
+                    underTest.doFilter(nested, nestedResponse, new MockFilterChain());
+                    underTest.doFilter(new MockHttpServletRequest("GET", "/api/v1/customers"), defaultResponse,
+                            new MockFilterChain());
+                }));
+
+        //then
+        assertThat(nestedResponse.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+        assertThat(defaultResponse.getStatus()).isEqualTo(HttpStatus.OK.value());
+    }
+}
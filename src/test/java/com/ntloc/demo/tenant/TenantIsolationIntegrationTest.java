@@ -0,0 +1,141 @@
+package com.ntloc.demo.tenant;
+
+import com.ntloc.demo.AbstractTestContainersTest;
+import com.ntloc.demo.customer.CreateCustomerRequest;
+import com.ntloc.demo.customer.CustomerResponse;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "tenancy.tenants.acme.schema=acme",
+        "tenancy.tenants.acme.maximum-pool-size=2",
+        "tenancy.tenants.globex.schema=globex",
+        "tenancy.tenants.globex.maximum-pool-size=2"
+})
+class TenantIsolationIntegrationTest extends AbstractTestContainersTest {
+
+    private final String BASED_URL = "/api/v1/customers";
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @Test
+    void TestThat_createCustomer_ShouldOnlyBeVisibleToItsTenant() {
+        //given
+        CreateCustomerRequest createCustomerRequest = new CreateCustomerRequest(
+                "Alice",
+                "alice" + UUID.randomUUID() + "@gmail.com",
+                "US"
+        );
+
+        //when
+        ResponseEntity<Void> createCustomerResponse = testRestTemplate.exchange(
+                BASED_URL,
+                HttpMethod.POST,
+                new HttpEntity<>(createCustomerRequest, tenant("acme")),
+                Void.class
+        );
+
+        //then
+        assertThat(createCustomerResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(getCustomers("acme")).extracting(CustomerResponse::email).contains(createCustomerRequest.email());
+        assertThat(getCustomers("globex")).extracting(CustomerResponse::email).doesNotContain(createCustomerRequest.email());
+    }
+
+    @Test
+    void TestThat_createCustomer_ShouldAllowSameEmailInDifferentTenants() {
+        //given
+        CreateCustomerRequest createCustomerRequest = new CreateCustomerRequest(
+                "Alice",
+                "alice" + UUID.randomUUID() + "@gmail.com",
+                "US"
+        );
+        testRestTemplate.exchange(BASED_URL, HttpMethod.POST,
+                new HttpEntity<>(createCustomerRequest, tenant("acme")), Void.class);
+
+        //when
+        ResponseEntity<Void> createCustomerResponse = testRestTemplate.exchange(
+                BASED_URL,
+                HttpMethod.POST,
+                new HttpEntity<>(createCustomerRequest, tenant("globex")),
+                Void.class
+        );
+
+        //then
+        assertThat(createCustomerResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void TestThat_getCustomers_ShouldRejectUnknownTenant() {
+        //given
+        //when
+        ResponseEntity<String> response = testRestTemplate.exchange(
+                BASED_URL,
+                HttpMethod.GET,
+                new HttpEntity<>(tenant("initech")),
+                String.class
+        );
+
+        //then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void TestThat_getCustomerById_ShouldOnlyBeRejectedForTenantWhoseCircuitIsOpen() {
+        //given
+        CircuitBreaker acme = circuitBreakerRegistry.circuitBreaker("customerDatabase-acme", "customerDatabase");
+        acme.transitionToForcedOpenState();
+
+        try {
+            //when
+            ResponseEntity<String> acmeResponse = testRestTemplate.exchange(BASED_URL + "/" + Long.MAX_VALUE,
+                    HttpMethod.GET, new HttpEntity<>(tenant("acme")), String.class);
+            ResponseEntity<String> globexResponse = testRestTemplate.exchange(BASED_URL + "/" + Long.MAX_VALUE,
+                    HttpMethod.GET, new HttpEntity<>(tenant("globex")), String.class);
+
+            //then
+            assertThat(acmeResponse.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+            assertThat(globexResponse.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        } finally {
+            acme.reset();
+        }
+    }
+
+    private List<CustomerResponse> getCustomers(String tenantId) {
+        ResponseEntity<List<CustomerResponse>> response = testRestTemplate.exchange(
+                BASED_URL,
+                HttpMethod.GET,
+                new HttpEntity<>(tenant(tenantId)),
+                new ParameterizedTypeReference<>() {
+                }
+        );
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return response.getBody();
+    }
+
+    private static HttpHeaders tenant(String tenantId) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Tenant-Id", tenantId);
+        return headers;
+    }
+}
@@ -0,0 +1,150 @@
+package com.ntloc.demo.tracing;
+
+import com.ntloc.demo.AbstractTestContainersTest;
+import com.ntloc.demo.customer.Customer;
+import com.ntloc.demo.customer.CustomerStore;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static io.opentelemetry.api.common.AttributeKey.stringKey;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The JPA counterpart of {@link CustomerTracingTest}: repository spans come
+ * from {@link RepositoryObservationPostProcessor} and carry the JDBC spans
+ * of datasource-micrometer.
+ */
+@Testcontainers
+@Import(InMemoryTracingConfiguration.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "management.tracing.sampling.probability=1.0",
+        "tracing.sampling.max-traces-per-second=1000"
+})
+class CustomerRepositoryTracingTest extends AbstractTestContainersTest {
+
+    private final String BASED_URL = "/api/v1/customers";
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    @Autowired
+    private CustomerStore customerStore;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private InMemorySpanExporter inMemorySpanExporter;
+
+    @Autowired
+    private SdkTracerProvider sdkTracerProvider;
+
+    @BeforeEach
+    void setUp() {
+        inMemorySpanExporter.reset();
+    }
+
+    @Test
+    void TestThat_getCustomerById_ShouldNestSqlAndRowCountSpansUnderRepositorySpan() {
+        //given
+        Customer customer = customerStore.save(
+                Customer.create("Alice", "alice" + UUID.randomUUID() + "@gmail.com", "US"));
+        flush();
+        inMemorySpanExporter.reset();
+
+        //when
+        ResponseEntity<Customer> response = testRestTemplate.getForEntity(BASED_URL + "/" + customer.getId(),
+                Customer.class);
+
+        //then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        List<SpanData> spans = flush();
+        SpanData controller = span(spans, "customer-controller#get-customer-by-id");
+        SpanData service = span(spans, "customer-service#get-customer-by-id");
+        SpanData repository = span(spans, "customer-repository#find-response-by-id");
+        assertThat(List.of(service, repository)).allSatisfy(
+                span -> assertThat(span.getTraceId()).isEqualTo(controller.getTraceId()));
+        // The read-only transaction holds its connection from inside the
+        // service call, so the repository call runs in the connection span.
+        SpanData connection = child(spans, service, "connection");
+        assertThat(repository.getParentSpanId()).isEqualTo(connection.getSpanId());
+        assertThat(repository.getAttributes().get(stringKey("class"))).isEqualTo("CustomerRepository");
+        assertThat(repository.getAttributes().get(stringKey("rows"))).isEqualTo("1");
+
+        SpanData query = child(spans, repository, "query");
+        assertThat(query.getAttributes().get(stringKey("jdbc.query[0]")))
+                .startsWith("select")
+                .contains("from customer")
+                .contains(".id=?");
+        SpanData resultSet = child(spans, repository, "result-set");
+        assertThat(resultSet.getAttributes().get(stringKey("jdbc.row-count"))).isEqualTo("1");
+    }
+
+    @Test
+    void TestThat_existsByEmail_ShouldRecordZeroRows_WhenEmailDoesNotExist() {
+        //given
+        String email = "nobody" + UUID.randomUUID() + "@gmail.com";
+
+        //when
+        boolean exists = customerStore.existsByEmail(email);
+
+        //then
+        assertThat(exists).isFalse();
+        SpanData repository = span(flush(), "customer-repository#exists-by-email");
+        assertThat(repository.getAttributes().get(stringKey("rows"))).isEqualTo("0");
+    }
+
+    @Test
+    void TestThat_streamEmailHashes_ShouldNotRecordRows() {
+        //given
+        customerStore.save(Customer.create("Alice", "alice" + UUID.randomUUID() + "@gmail.com", "US"));
+        flush();
+        inMemorySpanExporter.reset();
+
+        //when
+        long hashes = new TransactionTemplate(transactionManager).execute(status -> {
+            try (Stream<Long> stream = customerStore.streamEmailHashes()) {
+                return stream.count();
+            }
+        });
+
+        //then
+        assertThat(hashes).isPositive();
+        SpanData repository = span(flush(), "customer-repository#stream-email-hashes");
+        assertThat(repository.getAttributes().get(stringKey("rows"))).isNull();
+    }
+
+    private static SpanData span(List<SpanData> spans, String name) {
+        return spans.stream()
+                .filter(span -> span.getName().equals(name))
+                .findFirst().orElseThrow(() -> new AssertionError("no span " + name + " in " + spans));
+    }
+
+    private static SpanData child(List<SpanData> spans, SpanData parent, String name) {
+        return spans.stream()
+                .filter(span -> span.getName().equals(name) && span.getParentSpanId().equals(parent.getSpanId()))
+                .findFirst().orElseThrow(() -> new AssertionError("no " + name + " span under " + parent.getName()));
+    }
+
+    private List<SpanData> flush() {
+        sdkTracerProvider.forceFlush().join(5, TimeUnit.SECONDS);
+        return inMemorySpanExporter.getFinishedSpanItems();
+    }
+}
@@ -0,0 +1,113 @@
+package com.ntloc.demo.tracing;
+
+import com.ntloc.demo.customer.Customer;
+import com.ntloc.demo.customer.CustomerStore;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.samplers.SamplingDecision;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ActiveProfiles("embedded")
+@Import(InMemoryTracingConfiguration.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "management.tracing.sampling.probability=1.0",
+        "tracing.sampling.max-traces-per-second=1000"
+})
+class CustomerTracingTest {
+
+    private final String BASED_URL = "/api/v1/customers";
+
+    @TempDir
+    static Path directory;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("customer.embedded.directory", () -> directory.toString());
+    }
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    @Autowired
+    private CustomerStore customerStore;
+
+    @Autowired
+    private InMemorySpanExporter inMemorySpanExporter;
+
+    @Autowired
+    private SdkTracerProvider sdkTracerProvider;
+
+    @BeforeEach
+    void setUp() {
+        inMemorySpanExporter.reset();
+    }
+
+    @Test
+    void TestThat_getCustomerById_ShouldRecordControllerServiceAndRepositorySpansInOneTrace() {
+        //given
+        Customer customer = customerStore.save(Customer.create("Alice", "alice@gmail.com", "US"));
+        sdkTracerProvider.forceFlush().join(5, TimeUnit.SECONDS);
+        inMemorySpanExporter.reset();
+
+        //when
+        ResponseEntity<Customer> response = testRestTemplate.getForEntity(BASED_URL + "/" + customer.getId(),
+                Customer.class);
+
+        //then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        sdkTracerProvider.forceFlush().join(5, TimeUnit.SECONDS);
+        List<SpanData> spans = inMemorySpanExporter.getFinishedSpanItems();
+
+        assertThat(spans).extracting(SpanData::getName).contains(
+                "customer-controller#get-customer-by-id",
+                "customer-service#get-customer-by-id",
+                "embedded-customer-store#find-response-by-id");
+        String traceId = spans.stream()
+                .filter(span -> span.getName().equals("customer-controller#get-customer-by-id"))
+                .findFirst().orElseThrow().getTraceId();
+        assertThat(spans)
+                .filteredOn(span -> span.getName().endsWith("#get-customer-by-id")
+                        || span.getName().endsWith("#find-response-by-id"))
+                .allSatisfy(span -> assertThat(span.getTraceId()).isEqualTo(traceId));
+    }
+
+    @Test
+    void TestThat_boundedSampler_ShouldCapSampledTracesPerSecond() {
+        //given
+        BoundedSampler underTest = new BoundedSampler(1.0, 10);
+
+        //when
+        long sampled = 0;
+        for (int i = 0; i < 1_000; i++) {
+            String traceId = String.format("%032x", i + 1);
+            if (underTest.shouldSample(Context.root(), traceId, "span", SpanKind.SERVER, Attributes.empty(), List.of())
+                    .getDecision() == SamplingDecision.RECORD_AND_SAMPLE) {
+                sampled++;
+            }
+        }
+
+        //then
+        assertThat(sampled).isBetween(1L, 11L);
+    }
+}
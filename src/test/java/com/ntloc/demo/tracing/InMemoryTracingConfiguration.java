@@ -0,0 +1,19 @@
+package com.ntloc.demo.tracing;
+
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Collects finished spans in memory so tests can assert on them. Call
+ * {@code SdkTracerProvider.forceFlush()} before reading, since spans are
+ * exported in batches.
+ */
+@TestConfiguration(proxyBeanMethods = false)
+public class InMemoryTracingConfiguration {
+
+    @Bean
+    public InMemorySpanExporter inMemorySpanExporter() {
+        return InMemorySpanExporter.create();
+    }
+}